@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+
+import vavi.util.Debug;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+
+/**
+ * The offsets of the size prefixed frames of an lc3 file.
+ * <p>
+ * made by a scan of the size prefixes only, no frame is decoded. the frame sizes are kept as
+ * {@code char}s and the offset of every {@link #BLOCK} th frame as a {@code long}, that is about 2 bytes
+ * per frame. the index is persisted next to the file as a sidecar ({@code *.idx}) with the file size and
+ * the last modified time, a sidecar which does not match the file is made again.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class Lc3FrameIndex {
+
+    /** frames per block */
+    private static final int BLOCK = 64;
+
+    /** "LC3I" */
+    private static final int MAGIC = 0x4933434c;
+
+    /** */
+    private static final int VERSION = 1;
+
+    /** magic, version, file size, last modified, first frame offset, frames */
+    private static final int SIDECAR_HEADER = 4 + 4 + 8 + 8 + 8 + 4;
+
+    /** */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** */
+    private final long fileSize;
+    /** in millis */
+    private final long lastModified;
+    /** payload sizes */
+    private final char[] sizes;
+    /** */
+    private final int frames;
+    /** the offset of every {@link #BLOCK} th frame, the last one is the end */
+    private final long[] blocks;
+
+    /** */
+    private Lc3FrameIndex(long fileSize, long lastModified, long first, char[] sizes, int frames) {
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.sizes = sizes;
+        this.frames = frames;
+        this.blocks = new long[frames / BLOCK + 1];
+        long offset = first;
+        for (int i = 0; i < frames; i++) {
+            if (i % BLOCK == 0) {
+                blocks[i / BLOCK] = offset;
+            }
+            offset += Short.BYTES + sizes[i];
+        }
+        if (frames % BLOCK == 0) {
+            blocks[frames / BLOCK] = offset;
+        }
+    }
+
+    /** */
+    public int getFrames() {
+        return frames;
+    }
+
+    /**
+     * @param frame 0 to {@link #getFrames()}, the last one is the end of the frames
+     * @return the offset of the size prefix of the frame in the file
+     */
+    public long offset(int frame) {
+        if (frame < 0 || frame > frames) {
+            throw new IndexOutOfBoundsException(frame + "/" + frames);
+        }
+        long offset = blocks[frame / BLOCK];
+        for (int i = frame - frame % BLOCK; i < frame; i++) {
+            offset += Short.BYTES + sizes[i];
+        }
+        return offset;
+    }
+
+    /** @return the payload size of the frame in bytes */
+    public int size(int frame) {
+        return sizes[frame];
+    }
+
+    /** @return the sidecar path of the file */
+    static Path sidecar(Path file) {
+        return file.resolveSibling(file.getFileName() + ".idx");
+    }
+
+    /**
+     * Gets the index from the sidecar, or scans the file and writes the sidecar.
+     * a sidecar which can not be written is only logged.
+     *
+     * @param file an lc3 file
+     * @throws IllegalArgumentException maybe not lc3, or an unsupported format
+     */
+    public static Lc3FrameIndex of(Path file) throws IOException {
+        long fileSize = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        Path sidecar = sidecar(file);
+        if (Files.exists(sidecar)) {
+            try {
+                Lc3FrameIndex index = load(sidecar);
+                if (index.fileSize == fileSize && index.lastModified == lastModified) {
+                    return index;
+                }
+Debug.println(Level.FINE, "sidecar is stale: " + sidecar);
+            } catch (IOException e) {
+Debug.println(Level.FINE, "sidecar is broken: " + sidecar + ", " + e);
+            }
+        }
+        Lc3FrameIndex index;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            index = scan(channel, headerLength(channel), lastModified);
+        }
+        try {
+            index.store(sidecar);
+        } catch (IOException e) {
+Debug.println(Level.WARNING, "sidecar is not written: " + sidecar + ", " + e);
+        }
+        return index;
+    }
+
+    /** @return the header length by {@link Lc3Plus} */
+    private static int headerLength(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(20);
+        while (head.hasRemaining() && channel.read(head, head.position()) > 0) {
+        }
+        try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(head.array(), 0, head.position()))) {
+            return lc3Plus.getHeaderLength();
+        }
+    }
+
+    /**
+     * Scans the size prefixes, a truncated last frame is not indexed.
+     *
+     * @param position the offset of the first frame
+     */
+    static Lc3FrameIndex scan(FileChannel channel, long position, long lastModified) throws IOException {
+        long fileSize = channel.size();
+        char[] sizes = new char[1024];
+        int frames = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long bufferPosition = position;
+        buffer.limit(0);
+        long p = position;
+        while (p + Short.BYTES <= fileSize) {
+            int o = (int) (p - bufferPosition);
+            if (o + Short.BYTES > buffer.limit()) {
+                // refills from p
+                buffer.clear();
+                bufferPosition = p;
+                while (buffer.position() < Short.BYTES && channel.read(buffer, bufferPosition + buffer.position()) > 0) {
+                }
+                buffer.flip();
+                o = 0;
+            }
+            int size = buffer.getShort(o) & 0xffff;
+            if (p + Short.BYTES + size > fileSize) {
+Debug.println(Level.FINE, "truncated frame at: " + p);
+                break;
+            }
+            if (frames == sizes.length) {
+                sizes = Arrays.copyOf(sizes, frames * 2);
+            }
+            sizes[frames++] = (char) size;
+            p += Short.BYTES + size;
+        }
+Debug.println(Level.FINE, "frames: " + frames);
+        return new Lc3FrameIndex(fileSize, lastModified, position, Arrays.copyOf(sizes, frames), frames);
+    }
+
+    /** */
+    private static Lc3FrameIndex load(Path sidecar) throws IOException {
+        try (FileChannel channel = FileChannel.open(sidecar, READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SIDECAR_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("not an index");
+            }
+            long fileSize = header.getLong();
+            long lastModified = header.getLong();
+            long first = header.getLong();
+            int frames = header.getInt();
+            if (channel.size() != SIDECAR_HEADER + (long) frames * Character.BYTES) {
+                throw new IOException("size mismatch");
+            }
+            ByteBuffer body = ByteBuffer.allocate(frames * Character.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, body);
+            char[] sizes = new char[frames];
+            body.asCharBuffer().get(sizes);
+            return new Lc3FrameIndex(fileSize, lastModified, first, sizes, frames);
+        }
+    }
+
+    /** through a temporary file, other processes may write at the same time */
+    private void store(Path sidecar) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIDECAR_HEADER + frames * Character.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(fileSize).putLong(lastModified).putLong(blocks[0]).putInt(frames);
+        buffer.asCharBuffer().put(sizes, 0, frames);
+        Path temp = Files.createTempFile(sidecar.toAbsolutePath().getParent(), sidecar.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, buffer.array());
+            Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** */
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Opens the file at the frame.
+     *
+     * @param file the file this index is made from
+     * @param frame the next frame {@link Lc3Plus#read()} reads
+     * @param prerollFrames frames before the frame decoded and dropped, so the decoder state is warmed up
+     * @return close it
+     */
+    public Lc3Plus open(Path file, int frame, int prerollFrames) throws IOException {
+        int from = Math.max(0, frame - prerollFrames);
+        FileChannel channel = FileChannel.open(file, READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate((int) blocks[0]);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            }
+            channel.position(offset(from));
+            InputStream in = new SequenceInputStream(new ByteArrayInputStream(header.array()), Channels.newInputStream(channel));
+            Lc3Plus lc3Plus = new Lc3Plus(new BufferedInputStream(in, BUFFER_SIZE));
+            try {
+                if (frame > from) {
+                    byte[] dropped = new byte[(frame - from) * lc3Plus.getOutputSamples() * lc3Plus.getChannels() * Short.BYTES];
+                    lc3Plus.decodeFrames(frame - from, dropped, 0);
+                }
+                return lc3Plus;
+            } catch (IOException | RuntimeException e) {
+                lc3Plus.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+}
+
+/* */
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.logging.Level;
+
+import vavi.util.Debug;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+
+/**
+ * An lc3 stream on buffers, the size prefixed frames are given as slices of them.
+ * <p>
+ * a file is memory mapped by segments of {@link #SEGMENT} bytes, so files over 2 GB are also
+ * random accessible. each mapping overlaps the next one by the largest size prefixed frame,
+ * so any frame which starts in a segment is a slice of that segment. in memory {@code byte[]}s
+ * and {@link ByteBuffer}s are a source of one segment.
+ * <p>
+ * a source has a position, {@link #duplicate()} shares the buffers with its own position.
+ * mappings are released by the gc after close.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class Lc3FrameSource implements Closeable {
+
+    /** bytes per mapped segment */
+    private static final long SEGMENT = 1L << 30;
+
+    /** the largest size prefixed frame */
+    private static final int OVERLAP = Short.BYTES + 0xffff;
+
+    /** little endian */
+    private final ByteBuffer[] segments;
+
+    /** the offset of a segment is its index * stride */
+    private final long stride;
+
+    /** */
+    private final long size;
+
+    /** */
+    private long position;
+
+    /** */
+    private boolean closed;
+
+    /** */
+    private Lc3FrameSource(ByteBuffer[] segments, long stride, long size) {
+        this.segments = segments;
+        this.stride = stride;
+        this.size = size;
+    }
+
+    /** the array is not copied */
+    public static Lc3FrameSource of(byte[] lc3) {
+        return of(ByteBuffer.wrap(lc3));
+    }
+
+    /** @param lc3 from the position to the limit, the buffer is not changed */
+    public static Lc3FrameSource of(ByteBuffer lc3) {
+        ByteBuffer segment = lc3.slice().order(ByteOrder.LITTLE_ENDIAN);
+        return new Lc3FrameSource(new ByteBuffer[] {segment}, Long.MAX_VALUE, segment.limit());
+    }
+
+    /** maps the file read only */
+    public static Lc3FrameSource map(Path file) throws IOException {
+        return map(file, SEGMENT);
+    }
+
+    /** @param segmentSize bytes per segment, not including the overlap */
+    static Lc3FrameSource map(Path file, long segmentSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            long size = channel.size();
+            int n = (int) Math.max(1, (size + segmentSize - 1) / segmentSize);
+            ByteBuffer[] segments = new ByteBuffer[n];
+            for (int i = 0; i < n; i++) {
+                long offset = i * segmentSize;
+                long length = Math.min(size - offset, segmentSize + OVERLAP);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+            }
+Debug.println(Level.FINE, "mapped: " + file + ", " + size + " bytes, " + n + " segments");
+            return new Lc3FrameSource(segments, segmentSize, size);
+        }
+    }
+
+    /** @return a source on the same buffers with its own position, from the current position */
+    public Lc3FrameSource duplicate() {
+        Lc3FrameSource source = new Lc3FrameSource(segments, stride, size);
+        source.position = position;
+        return source;
+    }
+
+    /** */
+    public long size() {
+        return size;
+    }
+
+    /** */
+    public long position() {
+        return position;
+    }
+
+    /** */
+    public void position(long position) {
+        if (position < 0 || position > size) {
+            throw new IllegalArgumentException(position + "/" + size);
+        }
+        this.position = position;
+    }
+
+    /** */
+    private ByteBuffer segment(long offset) throws IOException {
+        if (closed) {
+            throw new IOException("closed");
+        }
+        return segments[(int) (offset / stride)];
+    }
+
+    /**
+     * @return a slice of the bytes, not a copy
+     * @throws EOFException beyond the end
+     */
+    public ByteBuffer slice(long offset, int length) throws IOException {
+        if (offset < 0 || offset + length > size) {
+            throw new EOFException(offset + "+" + length + "/" + size);
+        }
+        ByteBuffer segment = segment(offset);
+        return segment.slice((int) (offset % stride), length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Reads a size prefixed frame.
+     *
+     * @return the payload as a slice, null at the end
+     * @throws EOFException the frame is truncated
+     */
+    public ByteBuffer next() throws IOException {
+        if (position + Short.BYTES > size) {
+            return null;
+        }
+        int n = segment(position).getShort((int) (position % stride)) & 0xffff;
+        if (position + Short.BYTES + n > size) {
+            throw new EOFException("frame is truncated: " + (size - position - Short.BYTES) + "/" + n);
+        }
+        ByteBuffer frame = slice(position + Short.BYTES, n);
+        position += Short.BYTES + n;
+        return frame;
+    }
+
+    /** @return the number of frames skipped, less than n at the end */
+    public int skipFrames(int n) throws IOException {
+        int frames = 0;
+        try {
+            while (frames < n && next() != null) {
+                frames++;
+            }
+        } catch (EOFException e) {
+Debug.println(Level.FINER, "eof at: " + frames);
+        }
+        return frames;
+    }
+
+    /** @return a stream which reads from and advances the position of this source */
+    public InputStream inputStream() {
+        return new InputStream() {
+            /** */
+            private long mark;
+
+            @Override
+            public int read() throws IOException {
+                if (position >= size) {
+                    return -1;
+                }
+                int b = segment(position).get((int) (position % stride)) & 0xff;
+                position++;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (position >= size) {
+                    return -1;
+                }
+                int l = (int) Math.min(len, size - position);
+                int r = 0;
+                while (r < l) {
+                    // to the end of the segment without the overlap
+                    int n = (int) Math.min(l - r, stride - position % stride);
+                    slice(position, n).get(0, b, off + r, n);
+                    position += n;
+                    r += n;
+                }
+                return r;
+            }
+
+            @Override
+            public long skip(long n) {
+                long l = Math.max(0, Math.min(n, size - position));
+                position += l;
+                return l;
+            }
+
+            @Override
+            public int available() {
+                return (int) Math.min(size - position, Integer.MAX_VALUE);
+            }
+
+            @Override
+            public boolean markSupported() {
+                return true;
+            }
+
+            @Override
+            public synchronized void mark(int readlimit) {
+                mark = position;
+            }
+
+            @Override
+            public synchronized void reset() {
+                position = mark;
+            }
+
+            @Override
+            public void close() {
+                Lc3FrameSource.this.close();
+            }
+        };
+    }
+
+    /** the buffers are shared by duplicates, they are not released here */
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
+
+/* */
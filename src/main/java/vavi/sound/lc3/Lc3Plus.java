@@ -4,26 +4,23 @@
 
 package vavi.sound.lc3;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.logging.Level;
 
-import com.sun.jna.Memory;
-import com.sun.jna.Native;
-import com.sun.jna.NativeLong;
-import com.sun.jna.Pointer;
-import com.sun.jna.ptr.PointerByReference;
 import vavi.io.LittleEndianDataInputStream;
-import vavi.sound.lc3.jna.Lc3Library.LC3PLUS_Error;
 import vavi.sound.lc3.jna.Lc3Library.LC3PLUS_PlcMode;
+import vavi.sound.lc3.spi.DecoderEngine;
+import vavi.sound.lc3.spi.DecoderPool;
 import vavi.util.Debug;
 
-import static vavi.sound.lc3.jna.Lc3Library.ERROR_MESSAGES;
-import static vavi.sound.lc3.jna.Lc3Library.INSTANCE;
-import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_MAX_BYTES;
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_MAX_CHANNELS;
 
 
 /**
@@ -34,19 +31,24 @@ import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_MAX_BYTES;
  */
 public class Lc3Plus implements AutoCloseable {
 
-    /** the decoder structure */
-    private PointerByReference decoder = new PointerByReference();
+    /** the decoder, borrowed from {@link DecoderPool} */
+    private DecoderEngine engine;
+    /** the key {@link #engine} is borrowed by */
+    private DecoderPool.Key key;
 
     // input data
 
     /** MUST be 8000 Hz, 16000 Hz, 24000 Hz, 32000 Hz, 44100 Hz, 48000 Hz or 96000 Hz */
     private int sampleRate = 48000;
     private int bitrate;
+    /** samples per channel, 0 is unknown */
     private int signalLength;
     private int channels;
     /** MUST be 10 ms, 5 ms or 2.5 ms */
     private float frameMs = 10;
     private boolean epMode;
+    /** 6 for the legacy header */
+    private int headerLength = 6;
 
     // options
 
@@ -58,28 +60,34 @@ public class Lc3Plus implements AutoCloseable {
     // runtime
 
     private LittleEndianDataInputStream ledis;
-
-    /** read buffer */
-    private Memory input;
-    /** scratch */
-    private int scratchSize;
-    /** scratch */
-    private Memory scratch;
-    /** pointer array */
-    private Memory output16s;
+    /** for bulk reading a frame payload */
+    private ReadableByteChannel channel;
+    /** frames are read from this instead of {@link #ledis} when not null */
+    private Lc3FrameSource source;
+    /** the offset of the first frame in {@link #source} */
+    private long firstFrame;
+    /** frames by a scan of {@link #source}, -1 is not scanned yet */
+    private long scannedFrames = -1;
+
+    /** read buffer, direct */
+    private ByteBuffer inputBuffer;
     /** decoded samples */
-    private Memory[] output16ch;
+    private short[][] planes;
+    /** decoded 24bit samples, allocated at the first 24bit decoding */
+    private int[][] planes24;
     /** */
     private int samples;
     /** */
     private int bfiExt;
+    /** */
+    private boolean closed;
 
     /** */
     public float getSampleRate() {
         return sampleRate;
     }
 
-    /** */
+    /** 24 for a high resolution stream, 16 otherwise */
     public int getSampleSizeInBit() {
         return sampleSizeInBit;
     }
@@ -89,20 +97,118 @@ public class Lc3Plus implements AutoCloseable {
         return channels;
     }
 
+    /** @return total of all channels in bps, as the header tells */
+    public int getBitrate() {
+        return bitrate;
+    }
+
+    /** @return 10, 5 or 2.5 */
+    public float getFrameMs() {
+        return frameMs;
+    }
+
+    /** */
+    public boolean isEpMode() {
+        return epMode;
+    }
+
+    /** @return 1 for a high resolution stream */
+    public int getHrMode() {
+        return hrMode;
+    }
+
+    /** @return samples per channel of a frame, 44.1 kHz is on the 48 kHz grid, no decoder is needed */
+    public int getFrameSamples() {
+        return (int) ((sampleRate == 44100 ? 48000 : sampleRate) * frameMs / 1000);
+    }
+
+    /**
+     * The number of frames, from the header, or by a scan of the size prefixes when the header does not tell it
+     * and the frames are read from a {@link Lc3FrameSource}.
+     *
+     * @return -1 when unknown
+     */
+    public long getFrames() throws IOException {
+        if (signalLength > 0) {
+            return (signalLength + getFrameSamples() - 1) / getFrameSamples();
+        } else if (source != null) {
+            if (scannedFrames < 0) {
+                // the position of the source is not changed
+                Lc3FrameSource scanning = source.duplicate();
+                scanning.position(firstFrame);
+                long frames = 0;
+                int n;
+                while ((n = scanning.skipFrames(Integer.MAX_VALUE)) > 0) {
+                    frames += n;
+                }
+                scannedFrames = frames;
+Debug.println(Level.FINE, "scanned frames: " + scannedFrames);
+            }
+            return scannedFrames;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * The length of the signal, from the header, or by {@link #getFrames()} (a multiple of
+     * {@link #getFrameSamples()}) when the header does not tell it.
+     *
+     * @return samples per channel, -1 when unknown
+     */
+    public long getSignalLength() throws IOException {
+        if (signalLength > 0) {
+            return signalLength;
+        } else {
+            long frames = getFrames();
+            return frames < 0 ? -1 : frames * getFrameSamples();
+        }
+    }
+
+    /**
+     * The length of the pcm which the decoding streams give, they drop {@link #getDelay()} at the head.
+     * the signal length from the header, or the scanned length less the codec delay.
+     *
+     * @return samples per channel, -1 when unknown
+     * @throws IOException no backend is available for the delay of a scanned length
+     */
+    public long getDecodedLength() throws IOException {
+        long length = getSignalLength();
+        if (length <= 0) {
+            return -1;
+        } else if (hasSignalLength()) {
+            return length;
+        } else {
+            return Math.max(0, length - getDelay());
+        }
+    }
+
+    /** @return true when the header tells the signal length, otherwise {@link #getSignalLength()} is by a scan */
+    public boolean hasSignalLength() {
+        return signalLength > 0;
+    }
+
+    /** @return bytes before the first frame */
+    int getHeaderLength() {
+        return headerLength;
+    }
+
     @Override
     public void close() throws IOException {
+        closed = true;
         ledis.close();
 
-        for (int i = 0; i < channels; i++) {
-            output16ch[i].close();
+        if (engine != null) {
+            DecoderPool.getDefault().release(key, engine);
+            engine = null;
         }
     }
 
     /**
-     * Creates a decoder.
+     * Reads the header, a decoder is borrowed from {@link DecoderPool} at the first use.
      *
      * @param in must be mark supported
-     * @throws IllegalArgumentException maybe not lc3
+     * @throws IllegalArgumentException maybe not lc3, or an unsupported format
      */
     public Lc3Plus(InputStream in) throws IOException {
         in.mark(20);
@@ -129,6 +235,7 @@ Debug.println(Level.FINE, "v: " + v);
                 epMode = ledis.readUnsignedShort() != 0;
                 signalLength = ledis.readInt();
                 hrMode = v > 18 ? ledis.readUnsignedShort() : 0;
+                sampleSizeInBit = hrMode != 0 ? 24 : 16;
 Debug.println(Level.FINE, "sampleRate: " + sampleRate);
 Debug.println(Level.FINE, "bitrate: " + bitrate);
 Debug.println(Level.FINE, "channels: " + channels);
@@ -137,11 +244,14 @@ Debug.println(Level.FINE, "epMode: " + epMode);
 Debug.println(Level.FINE, "signalLength: " + signalLength);
                 in.reset();
                 ledis.skipBytes(v);
+                headerLength = v;
             }
 
-            input = new Memory(LC3PLUS_MAX_BYTES);
+            if (!isSupported()) {
+                throw new IllegalArgumentException("unsupported: " + sampleRate + " Hz, " + channels + " ch, " + frameMs + " ms");
+            }
 
-            init();
+            channel = Channels.newChannel(ledis);
         } catch (IOException e) {
             throw e;
         } catch (Exception t) {
@@ -150,68 +260,416 @@ Debug.println(Level.FINE, "signalLength: " + signalLength);
         }
     }
 
-    /** init decoder */
-    private void init() throws IOException {
-        int size = INSTANCE.lc3plus_dec_get_size(sampleRate, channels, plcMode);
-        Memory m = new Memory(size);
-Debug.println(Level.FINER, m.size() + ", " + m);
-        decoder.setPointer(m);
+    /**
+     * Reads the header from the position of the source, frames are given to the decoder
+     * as slices of the source.
+     *
+     * @param source closed by {@link #close()}
+     * @throws IllegalArgumentException maybe not lc3, or an unsupported format
+     */
+    public Lc3Plus(Lc3FrameSource source) throws IOException {
+        this(source.inputStream());
+        this.source = source;
+        this.firstFrame = source.position();
+    }
+
+    /** the header is checked before any backend is touched, because all files are offered to the reader */
+    private boolean isSupported() {
+        return switch (sampleRate) {
+            case 8000, 16000, 24000, 32000, 44100, 48000, 96000 -> true;
+            default -> false;
+        } && channels >= 1 && channels <= LC3PLUS_MAX_CHANNELS &&
+                (frameMs == 10 || frameMs == 5 || frameMs == 2.5f);
+    }
+
+    /**
+     * Borrows the decoder at the first real use, so the native library is not loaded
+     * while a file is only probed.
+     */
+    private DecoderEngine engine() throws IOException {
+        if (closed) {
+            throw new IOException("closed");
+        }
+        if (engine == null) {
+            try {
+                key = DecoderPool.Key.of(sampleRate, channels, plcMode, hrMode, frameMs, epMode);
+                engine = DecoderPool.getDefault().borrow(key);
+            } catch (IllegalStateException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            samples = engine.getOutputSamples();
+            inputBuffer = engine.getInputBuffer();
+            planes = new short[channels][samples];
+        }
+        return engine;
+    }
+
+    /**
+     * @return the codec delay in samples per channel, the decoded pcm is behind the signal by it
+     * @throws IOException no backend is available
+     */
+    public int getDelay() throws IOException {
+        return engine().getDelay();
+    }
+
+    /** @return decoded samples per channel of a frame, by the header, no decoder is needed */
+    public int getOutputSamples() {
+        return getFrameSamples();
+    }
+
+    /**
+     * Decodes a frame read by {@link #read()}.
+     *
+     * @return a new buffer of interleaved 16bit little endian pcm
+     */
+    public byte[] decode(int inSize) throws IOException {
+        byte[] out = new byte[getOutputSamples() * channels * Short.BYTES];
+        decode(inSize, out, 0);
+        return out;
+    }
+
+    /**
+     * Decodes a frame read by {@link #read()} into the caller's buffer.
+     *
+     * @param out interleaved 16bit little endian pcm, needs {@link #getOutputSamples()} * channels * 2 bytes from off
+     * @return the number of samples written (all channels)
+     */
+    public int decode(int inSize, byte[] out, int off) throws IOException {
+        decode16(inSize);
+        interleave16(planes, channels, samples, out, off);
+        return samples * channels;
+    }
+
+    /**
+     * Decodes a frame read by {@link #read()} into the caller's buffer.
+     *
+     * @param out interleaved 16bit pcm, needs {@link #getOutputSamples()} * channels samples from off
+     * @return the number of samples written (all channels)
+     */
+    public int decode(int inSize, short[] out, int off) throws IOException {
+        decode16(inSize);
+        interleave16(planes, channels, samples, out, off);
+        return samples * channels;
+    }
+
+    /**
+     * Decodes a frame read by {@link #read()} into the caller's buffer.
+     *
+     * @param out interleaved 16bit pcm are put in the buffer's byte order from the position,
+     *            the position is advanced
+     * @return the number of samples written (all channels)
+     */
+    public int decode(int inSize, ByteBuffer out) throws IOException {
+        decode16(inSize);
+        interleave16(planes, channels, samples, out);
+        return samples * channels;
+    }
+
+    /**
+     * Decodes a frame read by {@link #read()} into the caller's buffer.
+     *
+     * @param out interleaved pcm normalized to [-1, 1), needs {@link #getOutputSamples()} * channels samples from off
+     * @return the number of samples written (all channels)
+     */
+    public int decode(int inSize, float[] out, int off) throws IOException {
+        decode16(inSize);
+        interleaveFloat(planes, channels, samples, out, off);
+        return samples * channels;
+    }
+
+    /**
+     * Decodes a frame read by {@link #read()} into the caller's buffer.
+     *
+     * @param out interleaved pcm normalized to [-1, 1) are put from the position, the position is advanced
+     * @return the number of samples written (all channels)
+     */
+    public int decode(int inSize, FloatBuffer out) throws IOException {
+        decode16(inSize);
+        interleaveFloat(planes, channels, samples, out);
+        return samples * channels;
+    }
+
+    /**
+     * Decodes a frame read by {@link #read()} into the caller's buffers without interleaving.
+     *
+     * @param out 16bit pcm per channel, each needs {@link #getOutputSamples()} samples
+     * @return the number of samples written per channel
+     */
+    public int decodePlanar(int inSize, short[][] out) throws IOException {
+        return decodePlanar(inSize, out, 0);
+    }
+
+    /**
+     * Decodes a frame read by {@link #read()} into the caller's buffers without interleaving.
+     *
+     * @param out 16bit pcm per channel, each needs {@link #getOutputSamples()} samples from off
+     * @return the number of samples written per channel
+     */
+    public int decodePlanar(int inSize, short[][] out, int off) throws IOException {
+        decode16(inSize, out, off);
+        return samples;
+    }
+
+    /**
+     * Reads and decodes frames into one contiguous block.
+     *
+     * @param maxFrames frames to decode at most, also limited by the space of out
+     * @param out interleaved 16bit pcm are put from the position, the position is advanced
+     * @return the number of frames decoded, -1 at the end of the stream
+     */
+    public int decodeFrames(int maxFrames, ShortBuffer out) throws IOException {
+        int n = getOutputSamples() * channels;
+        maxFrames = Math.min(maxFrames, out.remaining() / n);
+        int frames = 0;
+        try {
+            for (; frames < maxFrames; frames++) {
+                int nBytes = read();
+                if (out.hasArray()) {
+                    decode(nBytes, out.array(), out.arrayOffset() + out.position());
+                    out.position(out.position() + n);
+                } else {
+                    // interleaved from the planes directly, no intermediate array
+                    decode16(nBytes);
+                    interleave16(planes, channels, samples, out);
+                }
+            }
+        } catch (EOFException e) {
+            if (frames == 0) {
+                return -1;
+            }
+        }
+        return frames;
+    }
 
-Debug.println(Level.FINE, "hrMode: " + hrMode);
-        int r = INSTANCE.lc3plus_dec_init(decoder, sampleRate, channels, plcMode, hrMode);
-        if (r != LC3PLUS_Error.LC3PLUS_OK) {
-            throw new IOException("lc3plus_dec_init: " + ERROR_MESSAGES[r]);
+    /**
+     * Reads and decodes frames into one contiguous block.
+     *
+     * @param maxFrames frames to decode at most
+     * @param out interleaved 16bit little endian pcm, needs {@link #getOutputSamples()} * channels * 2 bytes
+     *            per frame from off
+     * @return the number of frames decoded, -1 at the end of the stream
+     */
+    public int decodeFrames(int maxFrames, byte[] out, int off) throws IOException {
+        int frameBytes = getOutputSamples() * channels * Short.BYTES;
+        int frames = 0;
+        try {
+            for (; frames < maxFrames; frames++) {
+                decode(read(), out, off + frames * frameBytes);
+            }
+        } catch (EOFException e) {
+            if (frames == 0) {
+                return -1;
+            }
         }
+        return frames;
+    }
 
-        r = INSTANCE.lc3plus_dec_set_frame_dms(decoder, (int) frameMs * 10);
-        if (r != LC3PLUS_Error.LC3PLUS_OK) {
-            throw new IOException("lc3plus_dec_set_frame_dms: " + ERROR_MESSAGES[r]);
+    /** decodes into {@link #planes} */
+    private void decode16(int inSize) throws IOException {
+        decode16(inSize, planes, 0);
+    }
+
+    /** decodes into planes */
+    private void decode16(int inSize, short[][] planes, int off) throws IOException {
+        engine().decode16(inSize, bfiExt, planes, off);
+    }
+
+    /**
+     * Decodes a frame read by {@link #read()} into the caller's buffer with 24bit precision.
+     *
+     * @param out interleaved 24bit pcm sign-extended to int, needs {@link #getOutputSamples()} * channels samples from off
+     * @return the number of samples written (all channels)
+     */
+    public int decode24(int inSize, int[] out, int off) throws IOException {
+        decode24(inSize);
+        for (int ch = 0; ch < channels; ch++) {
+            int[] p = planes24[ch];
+            for (int i = 0, o = off + ch; i < samples; i++, o += channels) {
+                out[o] = p[i];
+            }
         }
+        return samples * channels;
+    }
 
-        r = INSTANCE.lc3plus_dec_set_ep_enabled(decoder, epMode ? 1 : 0);
-        if (r != LC3PLUS_Error.LC3PLUS_OK) {
-            throw new IOException("lc3plus_dec_set_ep_enabled: " + ERROR_MESSAGES[r]);
+    /**
+     * Decodes a frame read by {@link #read()} into the caller's buffer with 24bit precision.
+     *
+     * @param out interleaved packed 24bit little endian pcm, needs {@link #getOutputSamples()} * channels * 3 bytes from off
+     * @return the number of samples written (all channels)
+     */
+    public int decode24(int inSize, byte[] out, int off) throws IOException {
+        decode24(inSize);
+        int stride = channels * 3;
+        for (int ch = 0; ch < channels; ch++) {
+            int[] p = planes24[ch];
+            for (int i = 0, o = off + ch * 3; i < samples; i++, o += stride) {
+                int s = p[i];
+                out[o] = (byte) s;
+                out[o + 1] = (byte) (s >> 8);
+                out[o + 2] = (byte) (s >> 16);
+            }
         }
+        return samples * channels;
+    }
 
-        samples = INSTANCE.lc3plus_dec_get_output_samples(decoder);
-Debug.println(Level.FINE, "samples: " + samples);
+    /**
+     * Decodes a frame read by {@link #read()} into the caller's buffer with 24bit precision.
+     *
+     * @param out interleaved 32bit little endian pcm, 24bit samples are msb aligned,
+     *            needs {@link #getOutputSamples()} * channels * 4 bytes from off
+     * @return the number of samples written (all channels)
+     */
+    public int decode32(int inSize, byte[] out, int off) throws IOException {
+        decode24(inSize);
+        int stride = channels * Integer.BYTES;
+        for (int ch = 0; ch < channels; ch++) {
+            int[] p = planes24[ch];
+            for (int i = 0, o = off + ch * Integer.BYTES; i < samples; i++, o += stride) {
+                int s = p[i];
+                out[o] = 0;
+                out[o + 1] = (byte) s;
+                out[o + 2] = (byte) (s >> 8);
+                out[o + 3] = (byte) (s >> 16);
+            }
+        }
+        return samples * channels;
+    }
 
-        scratchSize = INSTANCE.lc3plus_dec_get_scratch_size(decoder);
-Debug.println(Level.FINE, "scratchSize: " + scratchSize);
-        scratch = new Memory(scratchSize);
+    /** decodes into {@link #planes24} */
+    private void decode24(int inSize) throws IOException {
+        engine();
+        if (planes24 == null) {
+            planes24 = new int[channels][samples];
+        }
+        engine.decode24(inSize, bfiExt, planes24, 0);
+    }
 
-Debug.println(Level.FINER, "Native.POINTER_SIZE: " + Native.POINTER_SIZE);
-        output16s = new Memory((long) channels * Native.POINTER_SIZE);
-        output16ch = new Memory[channels];
-        for (int i = 0; i < channels; i++) {
-            output16ch[i] = new Memory((long) samples * Short.BYTES);
-            output16s.setPointer((long) i * Native.POINTER_SIZE, output16ch[i]);
+    /** mono and stereo are specialized so that the jit can unroll them */
+    static void interleave16(short[][] in, int channels, int n, short[] out, int off) {
+        switch (channels) {
+        case 1 -> System.arraycopy(in[0], 0, out, off, n);
+        case 2 -> {
+            short[] l = in[0];
+            short[] r = in[1];
+            for (int i = 0, o = off; i < n; i++, o += 2) {
+                out[o] = l[i];
+                out[o + 1] = r[i];
+            }
+        }
+        default -> {
+            for (int ch = 0; ch < channels; ch++) {
+                short[] p = in[ch];
+                for (int i = 0, o = off + ch; i < n; i++, o += channels) {
+                    out[o] = p[i];
+                }
+            }
+        }
         }
     }
 
-    /** decode */
-    public byte[] decode(int inSize) throws IOException {
+    /** little endian */
+    static void interleave16(short[][] in, int channels, int n, byte[] out, int off) {
+        switch (channels) {
+        case 1 -> {
+            short[] m = in[0];
+            for (int i = 0, o = off; i < n; i++, o += 2) {
+                short s = m[i];
+                out[o] = (byte) s;
+                out[o + 1] = (byte) (s >> 8);
+            }
+        }
+        case 2 -> {
+            short[] l = in[0];
+            short[] r = in[1];
+            for (int i = 0, o = off; i < n; i++, o += 4) {
+                short s = l[i];
+                out[o] = (byte) s;
+                out[o + 1] = (byte) (s >> 8);
+                s = r[i];
+                out[o + 2] = (byte) s;
+                out[o + 3] = (byte) (s >> 8);
+            }
+        }
+        default -> {
+            int stride = channels * Short.BYTES;
+            for (int ch = 0; ch < channels; ch++) {
+                short[] p = in[ch];
+                for (int i = 0, o = off + ch * Short.BYTES; i < n; i++, o += stride) {
+                    short s = p[i];
+                    out[o] = (byte) s;
+                    out[o + 1] = (byte) (s >> 8);
+                }
+            }
+        }
+        }
+    }
 
-Debug.println(Level.FINER, "decode: " + inSize + ", " + bfiExt);
-        int r = INSTANCE.lc3plus_dec16(decoder, input, inSize, new NativeLong(Pointer.nativeValue(output16s)), scratch, bfiExt);
-        if (r != LC3PLUS_Error.LC3PLUS_OK) {
-            throw new IOException("lc3plus_dec16: " + ERROR_MESSAGES[r]);
+    /** in the buffer's byte order, the position is advanced */
+    static void interleave16(short[][] in, int channels, int n, ByteBuffer out) {
+        int p = out.position();
+        int stride = channels * Short.BYTES;
+        for (int ch = 0; ch < channels; ch++) {
+            short[] c = in[ch];
+            for (int i = 0, o = p + ch * Short.BYTES; i < n; i++, o += stride) {
+                out.putShort(o, c[i]);
+            }
         }
+        out.position(p + n * stride);
+    }
 
-        ByteBuffer bb = ByteBuffer.allocate(samples * channels * Short.BYTES).order(ByteOrder.nativeOrder());
+    /** the position is advanced */
+    static void interleave16(short[][] in, int channels, int n, ShortBuffer out) {
+        int p = out.position();
+        for (int ch = 0; ch < channels; ch++) {
+            short[] c = in[ch];
+            for (int i = 0, o = p + ch; i < n; i++, o += channels) {
+                out.put(o, c[i]);
+            }
+        }
+        out.position(p + n * channels);
+    }
 
-        interleave16(output16ch, bb.asShortBuffer(), samples);
+    /** 16bit to float */
+    private static final float SCALE_16 = 1f / 32768;
 
-        return bb.array();
+    /** normalizes while interleaving */
+    static void interleaveFloat(short[][] in, int channels, int n, float[] out, int off) {
+        switch (channels) {
+        case 1 -> {
+            short[] m = in[0];
+            for (int i = 0, o = off; i < n; i++, o++) {
+                out[o] = m[i] * SCALE_16;
+            }
+        }
+        case 2 -> {
+            short[] l = in[0];
+            short[] r = in[1];
+            for (int i = 0, o = off; i < n; i++, o += 2) {
+                out[o] = l[i] * SCALE_16;
+                out[o + 1] = r[i] * SCALE_16;
+            }
+        }
+        default -> {
+            for (int ch = 0; ch < channels; ch++) {
+                short[] p = in[ch];
+                for (int i = 0, o = off + ch; i < n; i++, o += channels) {
+                    out[o] = p[i] * SCALE_16;
+                }
+            }
+        }
+        }
     }
 
-    /** */
-    private void interleave16(Memory[] in, ShortBuffer out, int n) {
+    /** normalizes while interleaving, the position is advanced */
+    static void interleaveFloat(short[][] in, int channels, int n, FloatBuffer out) {
+        int p = out.position();
         for (int ch = 0; ch < channels; ch++) {
-            for (int i = 0; i < n; i++) {
-                out.put(i * channels + ch, in[ch].getShort((long) i * Short.BYTES));
+            short[] c = in[ch];
+            for (int i = 0, o = p + ch; i < n; i++, o += channels) {
+                out.put(o, c[i] * SCALE_16);
             }
         }
+        out.position(p + n * channels);
     }
 
     /* G192 bitstream writing/reading */
@@ -221,26 +679,98 @@ Debug.println(Level.FINER, "decode: " + inSize + ", " + bfiExt);
     private static final int G192_ZERO = 0x007F;
     private static final int G192_ONE = 0x0081;
 
-    /** */
+    /**
+     * Reads a frame into the native input buffer.
+     *
+     * @return frame size in bytes
+     * @throws EOFException no more frames
+     */
     public int read() throws IOException {
-        if (g192) {
+        engine();
+        if (source != null) {
+            ByteBuffer frame = source.next();
+            if (frame == null) {
+                throw new EOFException();
+            }
+            int nbytes = frame.remaining();
+            int length = Math.min(nbytes, inputBuffer.capacity());
+            // direct to direct, no heap copy
+            inputBuffer.clear().limit(length);
+            inputBuffer.put(frame.limit(length));
+            if (nbytes > length) {
+Debug.println(Level.WARNING, "frame is too large, truncated: " + nbytes);
+            }
+            return nbytes;
+        } else if (g192) {
             return read_g192();
         } else {
             int nbytes = ledis.readUnsignedShort();
-            for (int i = 0; i < nbytes && i < input.size(); i++) {
-                input.setByte(i, ledis.readByte());
+            int length = Math.min(nbytes, inputBuffer.capacity());
+            inputBuffer.clear().limit(length);
+            while (inputBuffer.hasRemaining()) {
+                if (channel.read(inputBuffer) < 0) {
+                    throw new EOFException("frame is truncated: " + inputBuffer.position() + "/" + nbytes);
+                }
+            }
+            if (nbytes > length) {
+Debug.println(Level.WARNING, "frame is too large, truncated: " + nbytes);
+                ledis.skipBytes(nbytes - length);
             }
             return nbytes;
         }
     }
 
+    /**
+     * Skips frames at the bitstream level, they are not decoded.
+     * the decoder state is from the frame before, decode some frames and drop them
+     * before the output is used.
+     *
+     * @return the number of frames skipped, less than n at the end of the stream
+     */
+    public int skipFrames(int n) throws IOException {
+        if (closed) {
+            throw new IOException("closed");
+        }
+        if (source != null) {
+            return source.skipFrames(n);
+        }
+        int frames = 0;
+        try {
+            for (; frames < n; frames++) {
+                if (g192) {
+                    ledis.readShort();
+                    skipFully(ledis.readUnsignedShort() * Short.BYTES);
+                } else {
+                    skipFully(ledis.readUnsignedShort());
+                }
+            }
+        } catch (EOFException e) {
+Debug.println(Level.FINER, "eof at: " + frames);
+        }
+        return frames;
+    }
+
+    /** @throws EOFException the stream ends before n bytes */
+    private void skipFully(long n) throws IOException {
+        while (n > 0) {
+            long l = ledis.skip(n);
+            if (l <= 0) {
+                if (ledis.read() < 0) {
+                    throw new EOFException("frame is truncated");
+                }
+                l = 1;
+            }
+            n -= l;
+        }
+    }
+
     /** */
     private int read_g192() throws IOException {
         int frameIndicator = ledis.readShort();
         int nbits = ledis.readUnsignedShort();
         int nbytes = nbits / 8;
 
-        for (int i = 0; i < nbytes && i < input.size(); i++) {
+        for (int i = 0; i < nbytes && i < inputBuffer.capacity(); i++) {
             byte byte_ = 0;
             for (int j = 0; j < 8; j++) {
                 int currentBit = ledis.readShort();
@@ -248,7 +778,7 @@ Debug.println(Level.FINER, "decode: " + inSize + ", " + bfiExt);
                     byte_ |= 1 << j;
                 }
             }
-            input.setByte(i, byte_);
+            inputBuffer.put(i, byte_);
         }
         if (frameIndicator == G192_GOOD_FRAME) {
             bfiExt = 0;
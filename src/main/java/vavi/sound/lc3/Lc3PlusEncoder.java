@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+
+import vavi.sound.lc3.jna.Lc3Library.LC3PLUS_EpMode;
+import vavi.sound.lc3.spi.EncoderEngine;
+import vavi.sound.lc3.spi.Lc3Backends;
+import vavi.util.Debug;
+
+
+/**
+ * Lc3PlusEncoder.
+ * <p>
+ * the encoder state and buffers are allocated once, a frame is encoded
+ * without allocation into the caller's buffer.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class Lc3PlusEncoder implements AutoCloseable {
+
+    /** the encoder */
+    private final EncoderEngine engine;
+
+    /** MUST be 8000 Hz, 16000 Hz, 24000 Hz, 32000 Hz, 44100 Hz, 48000 Hz or 96000 Hz */
+    private final int sampleRate;
+    private final int channels;
+    /** total of all channels in bps */
+    private int bitrate;
+    /** MUST be 10 ms, 5 ms or 2.5 ms */
+    private final float frameMs;
+    private final int epMode;
+    private final int hrMode;
+
+    /** pcm per channel to encode */
+    private final short[][] planes;
+    /** 24bit pcm per channel to encode, allocated at the first 24bit encoding */
+    private int[][] planes24;
+    /** */
+    private final int samples;
+    /** the codec delay, fixed by the parameters */
+    private final int delay;
+    /** */
+    private boolean closed;
+
+    /** 10 ms frames, no error protection, no high resolution mode */
+    public Lc3PlusEncoder(int sampleRate, int channels, int bitrate) throws IOException {
+        this(sampleRate, channels, bitrate, 10, LC3PLUS_EpMode.LC3PLUS_EP_OFF, 0);
+    }
+
+    /**
+     * Creates an encoder by a backend selected by {@link Lc3Backends}.
+     *
+     * @param bitrate total of all channels in bps
+     * @param frameMs 10, 5 or 2.5
+     * @param epMode one of {@link LC3PLUS_EpMode}
+     * @param hrMode 1 for the high resolution mode
+     * @throws IOException the codec rejects the parameters
+     * @throws IllegalStateException no backend is available
+     */
+    public Lc3PlusEncoder(int sampleRate, int channels, int bitrate, float frameMs, int epMode, int hrMode) throws IOException {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bitrate = bitrate;
+        this.frameMs = frameMs;
+        this.epMode = epMode;
+        this.hrMode = hrMode;
+        engine = Lc3Backends.createEncoder(sampleRate, channels, hrMode, frameMs, bitrate, epMode);
+        samples = engine.getInputSamples();
+        delay = engine.getDelay();
+        planes = new short[channels][samples];
+Debug.println(Level.FINE, "samples: " + samples + ", delay: " + delay + ", real bitrate: " + engine.getRealBitrate());
+    }
+
+    /** */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /** */
+    public int getChannels() {
+        return channels;
+    }
+
+    /** @return total of all channels in bps */
+    public int getBitrate() {
+        return bitrate;
+    }
+
+    /**
+     * @return the bitrate the frames are actually encoded at
+     * @throws IllegalStateException closed
+     */
+    public int getRealBitrate() {
+        if (closed) {
+            throw new IllegalStateException("closed");
+        }
+        return engine.getRealBitrate();
+    }
+
+    /** */
+    public float getFrameMs() {
+        return frameMs;
+    }
+
+    /** @return one of {@link LC3PLUS_EpMode} */
+    public int getEpMode() {
+        return epMode;
+    }
+
+    /** */
+    public int getHrMode() {
+        return hrMode;
+    }
+
+    /** @return pcm samples per channel of a frame */
+    public int getInputSamples() {
+        return samples;
+    }
+
+    /** @return the codec delay in samples */
+    public int getDelay() {
+        return delay;
+    }
+
+    /** changes the bitrate from the next frame */
+    public void setBitrate(int bitrate) throws IOException {
+        engine().setBitrate(bitrate);
+        this.bitrate = bitrate;
+    }
+
+    /** @param bandwidth cutoff frequency in Hz */
+    public void setBandwidth(int bandwidth) throws IOException {
+        engine().setBandwidth(bandwidth);
+    }
+
+    /** @param lfe true for a low frequency effects channel */
+    public void setLfe(boolean lfe) throws IOException {
+        engine().setLfe(lfe);
+    }
+
+    /** the native memory is freed, so the engine is not touched after close */
+    private EncoderEngine engine() throws IOException {
+        if (closed) {
+            throw new IOException("closed");
+        }
+        return engine;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        engine.close();
+    }
+
+    /**
+     * Encodes a frame.
+     *
+     * @param in interleaved 16bit pcm, needs {@link #getInputSamples()} * channels samples from off
+     * @param out the encoded frame is put from outOff
+     * @return the encoded frame size in bytes
+     */
+    public int encode(short[] in, int off, byte[] out, int outOff) throws IOException {
+        deinterleave16(in, off, channels, samples, planes);
+        return output(engine().encode16(planes, 0), out, outOff);
+    }
+
+    /**
+     * Encodes a frame.
+     *
+     * @param in interleaved 16bit little endian pcm, needs {@link #getInputSamples()} * channels * 2 bytes from off
+     * @param out the encoded frame is put from outOff
+     * @return the encoded frame size in bytes
+     */
+    public int encode(byte[] in, int off, byte[] out, int outOff) throws IOException {
+        deinterleave16(in, off, channels, samples, planes);
+        return output(engine().encode16(planes, 0), out, outOff);
+    }
+
+    /**
+     * Encodes a frame.
+     *
+     * @param in interleaved 16bit pcm in the buffer's byte order from the position, the position is advanced
+     * @param out the encoded frame is put from the position, the position is advanced
+     * @return the encoded frame size in bytes
+     */
+    public int encode(ByteBuffer in, ByteBuffer out) throws IOException {
+        deinterleave16(in, channels, samples, planes);
+        int n = engine().encode16(planes, 0);
+        out.put(out.position(), engine().getOutputBuffer(), 0, n);
+        out.position(out.position() + n);
+        return n;
+    }
+
+    /**
+     * Encodes a frame without interleaving.
+     *
+     * @param in 16bit pcm per channel, each needs {@link #getInputSamples()} samples from off
+     * @param out the encoded frame is put from outOff
+     * @return the encoded frame size in bytes
+     */
+    public int encodePlanar(short[][] in, int off, byte[] out, int outOff) throws IOException {
+        return output(engine().encode16(in, off), out, outOff);
+    }
+
+    /**
+     * Encodes a frame with 24bit precision.
+     *
+     * @param in interleaved 24bit pcm sign-extended to int, needs {@link #getInputSamples()} * channels samples from off
+     * @param out the encoded frame is put from outOff
+     * @return the encoded frame size in bytes
+     */
+    public int encode24(int[] in, int off, byte[] out, int outOff) throws IOException {
+        int[][] planes24 = planes24();
+        for (int ch = 0; ch < channels; ch++) {
+            int[] p = planes24[ch];
+            for (int i = 0, o = off + ch; i < samples; i++, o += channels) {
+                p[i] = in[o];
+            }
+        }
+        return output(engine().encode24(planes24, 0), out, outOff);
+    }
+
+    /**
+     * Encodes a frame with 24bit precision.
+     *
+     * @param in interleaved packed 24bit little endian pcm, needs {@link #getInputSamples()} * channels * 3 bytes from off
+     * @param out the encoded frame is put from outOff
+     * @return the encoded frame size in bytes
+     */
+    public int encode24(byte[] in, int off, byte[] out, int outOff) throws IOException {
+        int[][] planes24 = planes24();
+        int stride = channels * 3;
+        for (int ch = 0; ch < channels; ch++) {
+            int[] p = planes24[ch];
+            for (int i = 0, o = off + ch * 3; i < samples; i++, o += stride) {
+                p[i] = (in[o] & 0xff) | ((in[o + 1] & 0xff) << 8) | (in[o + 2] << 16);
+            }
+        }
+        return output(engine().encode24(planes24, 0), out, outOff);
+    }
+
+    /** */
+    private int[][] planes24() {
+        if (planes24 == null) {
+            planes24 = new int[channels][samples];
+        }
+        return planes24;
+    }
+
+    /** copies the encoded frame */
+    private int output(int n, byte[] out, int outOff) {
+        engine.getOutputBuffer().get(0, out, outOff, n);
+        return n;
+    }
+
+    /** mono and stereo are specialized so that the jit can unroll them */
+    static void deinterleave16(short[] in, int off, int channels, int n, short[][] out) {
+        switch (channels) {
+        case 1 -> System.arraycopy(in, off, out[0], 0, n);
+        case 2 -> {
+            short[] l = out[0];
+            short[] r = out[1];
+            for (int i = 0, o = off; i < n; i++, o += 2) {
+                l[i] = in[o];
+                r[i] = in[o + 1];
+            }
+        }
+        default -> {
+            for (int ch = 0; ch < channels; ch++) {
+                short[] p = out[ch];
+                for (int i = 0, o = off + ch; i < n; i++, o += channels) {
+                    p[i] = in[o];
+                }
+            }
+        }
+        }
+    }
+
+    /** little endian */
+    static void deinterleave16(byte[] in, int off, int channels, int n, short[][] out) {
+        int stride = channels * Short.BYTES;
+        for (int ch = 0; ch < channels; ch++) {
+            short[] p = out[ch];
+            for (int i = 0, o = off + ch * Short.BYTES; i < n; i++, o += stride) {
+                p[i] = (short) ((in[o] & 0xff) | (in[o + 1] << 8));
+            }
+        }
+    }
+
+    /** in the buffer's byte order, the position is advanced */
+    static void deinterleave16(ByteBuffer in, int channels, int n, short[][] out) {
+        int p = in.position();
+        int stride = channels * Short.BYTES;
+        for (int ch = 0; ch < channels; ch++) {
+            short[] c = out[ch];
+            for (int i = 0, o = p + ch * Short.BYTES; i < n; i++, o += stride) {
+                c[i] = in.getShort(o);
+            }
+        }
+        in.position(p + n * stride);
+    }
+}
+
+/* */
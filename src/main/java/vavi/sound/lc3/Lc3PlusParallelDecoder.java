@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import vavi.util.Debug;
+
+
+/**
+ * Decodes a whole lc3 stream in segments on several decoders at once.
+ * <p>
+ * each segment is decoded by its own {@link Lc3Plus} which first decodes some frames in front of
+ * the segment and drops them (pre-roll), so the overlap-add, ltpf and plc history at the segment
+ * boundary is warmed up as in a sequential decoding. segments are written in order, only a bounded
+ * number of segments is in flight.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class Lc3PlusParallelDecoder {
+
+    /** the whole stream, the header and size prefixed frames */
+    private final Lc3FrameSource source;
+
+    /** the offset of each frame in {@link #source}, the last one is the end */
+    private final long[] offsets;
+
+    /** */
+    private final int frameBytes;
+
+    /** */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /** */
+    private int segmentFrames = 500;
+    /** */
+    private int prerollFrames = 4;
+
+    /**
+     * @param lc3 the whole stream from the position to the limit, the position is not changed
+     * @see #Lc3PlusParallelDecoder(Lc3FrameSource)
+     */
+    public Lc3PlusParallelDecoder(ByteBuffer lc3) throws IOException {
+        this(Lc3FrameSource.of(lc3));
+    }
+
+    /**
+     * Reads the header and the frame sizes.
+     *
+     * @param source the whole stream from the position, the position is not changed
+     * @throws IllegalArgumentException maybe not lc3, or an unsupported format
+     */
+    public Lc3PlusParallelDecoder(Lc3FrameSource source) throws IOException {
+        this.source = source.duplicate();
+        Lc3FrameSource scanning = source.duplicate();
+        try (Lc3Plus lc3Plus = new Lc3Plus(scanning)) {
+            this.frameBytes = lc3Plus.getFrameSamples() * lc3Plus.getChannels() * Short.BYTES;
+            this.offsets = scan(scanning);
+        }
+Debug.println(Level.FINE, "frames: " + getFrames() + ", frameBytes: " + frameBytes);
+    }
+
+    /** @return frame offsets from the position followed by the end, a truncated last frame is dropped */
+    private static long[] scan(Lc3FrameSource source) throws IOException {
+        long[] offsets = new long[1024];
+        int frames = 0;
+        while (true) {
+            if (frames == offsets.length) {
+                offsets = Arrays.copyOf(offsets, frames * 2);
+            }
+            offsets[frames] = source.position();
+            if (source.skipFrames(1) < 1) {
+                break;
+            }
+            frames++;
+        }
+        return Arrays.copyOf(offsets, frames + 1);
+    }
+
+    /** @param threads decoders running at once, default is the number of processors */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /** @param segmentFrames frames decoded by a decoder, default 500 */
+    public void setSegmentFrames(int segmentFrames) {
+        this.segmentFrames = segmentFrames;
+    }
+
+    /** @param prerollFrames frames decoded and dropped in front of a segment, default 4 */
+    public void setPrerollFrames(int prerollFrames) {
+        this.prerollFrames = prerollFrames;
+    }
+
+    /** */
+    public int getFrames() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Decodes all.
+     *
+     * @param out interleaved 16bit little endian pcm is written in order
+     * @return the number of frames
+     */
+    public int decode(WritableByteChannel out) throws IOException {
+        int frames = getFrames();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Deque<Future<ByteBuffer>> inFlight = new ArrayDeque<>();
+            for (int start = 0; start < frames; start += segmentFrames) {
+                int from = start;
+                int to = Math.min(start + segmentFrames, frames);
+                inFlight.add(executor.submit(() -> decodeSegment(from - Math.min(from, prerollFrames), from, to)));
+                if (inFlight.size() >= threads * 2) {
+                    write(inFlight.poll(), out);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.poll(), out);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return frames;
+    }
+
+    /** */
+    private static void write(Future<ByteBuffer> segment, WritableByteChannel out) throws IOException {
+        try {
+            ByteBuffer bb = segment.get();
+            while (bb.hasRemaining()) {
+                out.write(bb);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException f) {
+                throw f;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @param prerollFrom the first frame decoded, frames before from are dropped
+     * @return pcm of frames from from to to
+     */
+    private ByteBuffer decodeSegment(int prerollFrom, int from, int to) throws IOException {
+        byte[] pcm = new byte[(to - prerollFrom) * frameBytes];
+        int frames = 0;
+        // the header is read from the start, then the frames from prerollFrom, on the same buffers
+        Lc3FrameSource segment = source.duplicate();
+        try (Lc3Plus lc3Plus = new Lc3Plus(segment)) {
+            segment.position(offsets[prerollFrom]);
+            int n;
+            while (frames < to - prerollFrom && (n = lc3Plus.decodeFrames(to - prerollFrom - frames, pcm, frames * frameBytes)) > 0) {
+                frames += n;
+            }
+        }
+        int dropped = from - prerollFrom;
+        return ByteBuffer.wrap(pcm, dropped * frameBytes, (frames - dropped) * frameBytes);
+    }
+}
+
+/* */
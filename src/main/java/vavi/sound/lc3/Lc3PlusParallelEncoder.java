@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import vavi.util.Debug;
+
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_MAX_BYTES;
+
+
+/**
+ * Encodes a long pcm signal in chunks on several encoders at once.
+ * <p>
+ * each chunk is encoded by its own encoder which first encodes some frames in front of
+ * the chunk and drops them, so the encoder state at the chunk boundary is close to the one
+ * of a sequential encoding. the priming covers the codec delay
+ * ({@link Lc3PlusEncoder#getDelay()}) and a few more frames for the long term states.
+ * frames are written in order, only a bounded number of chunks is in flight.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class Lc3PlusParallelEncoder {
+
+    /** frames primed in addition to the codec delay */
+    private static final int EXTRA_PRIMING_FRAMES = 4;
+
+    private final int sampleRate;
+    private final int channels;
+    private final int bitrate;
+    private final float frameMs;
+    private final int epMode;
+    private final int hrMode;
+
+    /** */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /** */
+    private int chunkFrames = 500;
+    /** -1 means by the codec delay */
+    private int primingFrames = -1;
+
+    /** @see Lc3PlusEncoder#Lc3PlusEncoder(int, int, int, float, int, int) */
+    public Lc3PlusParallelEncoder(int sampleRate, int channels, int bitrate, float frameMs, int epMode, int hrMode) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bitrate = bitrate;
+        this.frameMs = frameMs;
+        this.epMode = epMode;
+        this.hrMode = hrMode;
+    }
+
+    /** @param threads encoders running at once, default is the number of processors */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /** @param chunkFrames frames encoded by an encoder, default 500 */
+    public void setChunkFrames(int chunkFrames) {
+        this.chunkFrames = chunkFrames;
+    }
+
+    /** @param primingFrames frames encoded and dropped in front of a chunk, default is by the codec delay */
+    public void setPrimingFrames(int primingFrames) {
+        this.primingFrames = primingFrames;
+    }
+
+    /** */
+    private Lc3PlusEncoder newEncoder() throws IOException {
+        return new Lc3PlusEncoder(sampleRate, channels, bitrate, frameMs, epMode, hrMode);
+    }
+
+    /**
+     * Encodes all.
+     *
+     * @param pcm interleaved 16bit pcm from the position to the limit, the last frame is padded by silence.
+     *            the position is not changed.
+     * @param out size prefixed frames (16bit little endian size) are written in order,
+     *            silent frames for the codec delay follow the signal as the sequential encoding does
+     * @return the number of frames including the silent ones
+     */
+    public int encode(ShortBuffer pcm, WritableByteChannel out) throws IOException {
+        int samples;
+        int delayFrames;
+        try (Lc3PlusEncoder encoder = newEncoder()) {
+            samples = encoder.getInputSamples();
+            delayFrames = (encoder.getDelay() + samples - 1) / samples;
+        }
+        int priming = primingFrames >= 0 ? primingFrames : delayFrames + EXTRA_PRIMING_FRAMES;
+        int frameLength = samples * channels;
+        int signalFrames = (pcm.remaining() + frameLength - 1) / frameLength;
+        int frames = signalFrames + delayFrames;
+Debug.println(Level.FINE, "frames: " + frames + ", priming: " + priming + ", threads: " + threads);
+        ShortBuffer source = pcm.slice();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Deque<Future<ByteBuffer>> inFlight = new ArrayDeque<>();
+            for (int start = 0, to; start < frames; start = to) {
+                int from = start;
+                // the last chunk takes the silent frames
+                to = start + chunkFrames >= signalFrames ? frames : start + chunkFrames;
+                int end = to;
+                inFlight.add(executor.submit(() -> encodeChunk(source, from - Math.min(from, priming), from, end, frameLength)));
+                if (inFlight.size() >= threads * 2) {
+                    write(inFlight.poll(), out);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.poll(), out);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return frames;
+    }
+
+    /** */
+    private static void write(Future<ByteBuffer> chunk, WritableByteChannel out) throws IOException {
+        try {
+            ByteBuffer bb = chunk.get();
+            while (bb.hasRemaining()) {
+                out.write(bb);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException f) {
+                throw f;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @param primeFrom the first frame encoded, frames before from are dropped
+     * @param to frames beyond the pcm are silent
+     * @return size prefixed frames from from to to
+     */
+    private ByteBuffer encodeChunk(ShortBuffer pcm, int primeFrom, int from, int to, int frameLength) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate((to - from) * (Short.BYTES + LC3PLUS_MAX_BYTES));
+        byte[] b = chunk.array();
+        short[] frame = new short[frameLength];
+        try (Lc3PlusEncoder encoder = newEncoder()) {
+            for (int f = primeFrom; f < to; f++) {
+                int p = f * frameLength;
+                int l = Math.max(0, Math.min(frameLength, pcm.limit() - p));
+                if (l > 0) {
+                    pcm.get(p, frame, 0, l);
+                }
+                if (l < frameLength) {
+                    Arrays.fill(frame, l, frameLength, (short) 0);
+                }
+                int o = chunk.position();
+                int n = encoder.encode(frame, 0, b, o + Short.BYTES);
+                if (f >= from) {
+                    b[o] = (byte) n;
+                    b[o + 1] = (byte) (n >> 8);
+                    chunk.position(o + Short.BYTES + n);
+                }
+            }
+        }
+        return chunk.flip();
+    }
+}
+
+/* */
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.ffm;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.logging.Level;
+
+import vavi.sound.lc3.spi.DecoderEngine;
+import vavi.sound.lc3.spi.Lc3Backend;
+import vavi.util.Debug;
+
+
+/**
+ * Lc3Backend by the foreign function &amp; memory api.
+ * <p>
+ * the engine is only in the java 22 layer of the multi-release jar,
+ * so it is looked up reflectively.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class FfmBackend implements Lc3Backend {
+
+    /** probed once, null when not available */
+    private static Constructor<?> constructor;
+    /** */
+    private static boolean probed;
+
+    @Override
+    public String getName() {
+        return "ffm";
+    }
+
+    /** less call overhead than jna */
+    @Override
+    public int getPriority() {
+        return 20;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        synchronized (FfmBackend.class) {
+            if (!probed) {
+                probed = true;
+                if (Runtime.version().feature() >= 22) {
+                    try {
+                        // loads the library
+                        Class.forName(FfmBackend.class.getPackageName() + ".Lc3Ffm");
+                        constructor = Class.forName(FfmBackend.class.getPackageName() + ".FfmDecoderEngine")
+                                .getConstructor(int.class, int.class, int.class, int.class, float.class, boolean.class);
+                    } catch (LinkageError | ReflectiveOperationException e) {
+Debug.println(Level.FINE, "ffm: " + e);
+                    }
+                }
+            }
+            return constructor != null;
+        }
+    }
+
+    @Override
+    public DecoderEngine createDecoder(int sampleRate, int channels, int plcMode, int hrMode, float frameMs, boolean epMode) throws IOException {
+        if (!isAvailable()) {
+            throw new UnsupportedOperationException("ffm backend needs java 22+ and the library");
+        }
+        try {
+            return (DecoderEngine) constructor.newInstance(sampleRate, channels, plcMode, hrMode, frameMs, epMode);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException f) {
+                throw f;
+            } else if (e.getCause() instanceof RuntimeException f) {
+                throw f;
+            } else {
+                throw new IllegalStateException(e.getCause());
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
+
+/* */
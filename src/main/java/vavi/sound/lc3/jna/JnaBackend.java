@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.jna;
+
+import java.io.IOException;
+import java.util.logging.Level;
+
+import com.sun.jna.Memory;
+import vavi.sound.lc3.spi.DecoderEngine;
+import vavi.sound.lc3.spi.EncoderEngine;
+import vavi.sound.lc3.spi.Lc3Backend;
+import vavi.sound.lc3.spi.ScratchProvider;
+import vavi.util.Debug;
+
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_DEC_MAX_SCRATCH_SIZE;
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_ENC_MAX_SCRATCH_SIZE;
+
+
+/**
+ * Lc3Backend by JNA.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class JnaBackend implements Lc3Backend {
+
+    /** scratch shared by codecs on a thread */
+    static final ScratchProvider<Memory> scratches = ScratchProvider.perThread(Memory::new, Memory::size,
+            Math.max(LC3PLUS_DEC_MAX_SCRATCH_SIZE, LC3PLUS_ENC_MAX_SCRATCH_SIZE));
+
+    /** probed once */
+    private static Boolean available;
+
+    @Override
+    public String getName() {
+        return "jna";
+    }
+
+    @Override
+    public int getPriority() {
+        return 10;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        synchronized (JnaBackend.class) {
+            if (available == null) {
+                try {
+                    Lc3Library.Holder.INSTANCE.lc3plus_version();
+                    Class.forName(Lc3DirectLibrary.class.getName());
+                    available = true;
+                } catch (LinkageError | ClassNotFoundException e) {
+Debug.println(Level.FINE, "jna: " + e);
+                    available = false;
+                }
+            }
+            return available;
+        }
+    }
+
+    @Override
+    public DecoderEngine createDecoder(int sampleRate, int channels, int plcMode, int hrMode, float frameMs, boolean epMode) throws IOException {
+        return new JnaDecoderEngine(sampleRate, channels, plcMode, hrMode, frameMs, epMode);
+    }
+
+    @Override
+    public boolean hasEncoder() {
+        return true;
+    }
+
+    @Override
+    public EncoderEngine createEncoder(int sampleRate, int channels, int hrMode, float frameMs, int bitrate, int epMode) throws IOException {
+        return new JnaEncoderEngine(sampleRate, channels, hrMode, frameMs, bitrate, epMode);
+    }
+}
+
+/* */
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.jna;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import vavi.sound.lc3.jna.Lc3Library.LC3PLUS_Error;
+import vavi.sound.lc3.spi.DecoderEngine;
+import vavi.sound.lc3.spi.ScratchProvider;
+import vavi.util.Debug;
+
+import static vavi.sound.lc3.jna.Lc3Library.ERROR_MESSAGES;
+import static vavi.sound.lc3.jna.Lc3Library.Holder.INSTANCE;
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_MAX_BYTES;
+
+
+/**
+ * DecoderEngine by JNA.
+ * <p>
+ * setup calls go through {@link Lc3Library}, per frame calls through {@link Lc3DirectLibrary}.
+ * <p>
+ * every native block is held by the engine until {@link #close()} frees them all,
+ * an engine not closed is freed by a {@link Cleaner} after it becomes unreachable.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class JnaDecoderEngine implements DecoderEngine {
+
+    /** */
+    private final MemoryBlocks blocks = new MemoryBlocks();
+    /** runs {@link #blocks} once */
+    private final Cleaner.Cleanable cleanable;
+
+    /** the decoder structure */
+    private Memory decoder;
+    /** read buffer */
+    private Memory input;
+    /** direct view of {@link #input} */
+    private ByteBuffer inputBuffer;
+    /** own scratch, null when shared by {@link JnaBackend#scratches} */
+    private Memory scratch;
+    /** */
+    private int scratchSize;
+    /** pointer array */
+    private Memory output16s;
+    /** decoded samples */
+    private Memory[] output16ch;
+    /** pointer array for 24bit, allocated at the first 24bit decoding */
+    private Memory output24s;
+    /** decoded 24bit samples */
+    private Memory[] output24ch;
+    /** */
+    private final int sampleRate;
+    /** */
+    private final int channels;
+    /** */
+    private final int plcMode;
+    /** */
+    private final int hrMode;
+    /** */
+    private final float frameMs;
+    /** */
+    private final boolean epMode;
+    /** */
+    private int samples;
+    /** */
+    private int delay;
+
+    /**
+     * init decoder.
+     * the decoder structure itself is passed as LC3PLUS_Dec*, not a reference to it.
+     */
+    public JnaDecoderEngine(int sampleRate, int channels, int plcMode, int hrMode, float frameMs, boolean epMode) throws IOException {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.plcMode = plcMode;
+        this.hrMode = hrMode;
+        this.frameMs = frameMs;
+        this.epMode = epMode;
+        cleanable = MemoryBlocks.cleaner.register(this, blocks);
+        try {
+            init();
+        } catch (IOException | RuntimeException | Error e) {
+            cleanable.clean();
+            throw e;
+        }
+    }
+
+    /** */
+    @SuppressWarnings("deprecation")
+    private void init() throws IOException {
+        int size = INSTANCE.lc3plus_dec_get_size(sampleRate, channels, plcMode);
+        decoder = blocks.allocate(size);
+Debug.println(Level.FINER, decoder.size() + ", " + decoder);
+
+        setup();
+
+        samples = INSTANCE.lc3plus_dec_get_output_samples(decoder);
+        delay = INSTANCE.lc3plus_dec_get_delay(decoder);
+Debug.println(Level.FINE, "samples: " + samples + ", delay: " + delay);
+
+        scratchSize = INSTANCE.lc3plus_dec_get_scratch_size(decoder);
+Debug.println(Level.FINE, "scratchSize: " + scratchSize);
+        if (!ScratchProvider.isShared()) {
+            scratch = blocks.allocate(scratchSize);
+        }
+
+        input = blocks.allocate(LC3PLUS_MAX_BYTES);
+        inputBuffer = input.getByteBuffer(0, input.size());
+
+Debug.println(Level.FINER, "Native.POINTER_SIZE: " + Native.POINTER_SIZE);
+        output16s = blocks.allocate((long) channels * Native.POINTER_SIZE);
+        output16ch = new Memory[channels];
+        for (int i = 0; i < channels; i++) {
+            output16ch[i] = blocks.allocate((long) samples * Short.BYTES);
+            output16s.setPointer((long) i * Native.POINTER_SIZE, output16ch[i]);
+        }
+    }
+
+    /** (re)initializes the decoder structure, no allocation */
+    @SuppressWarnings("deprecation")
+    private void setup() throws IOException {
+Debug.println(Level.FINE, "hrMode: " + hrMode);
+        int r = INSTANCE.lc3plus_dec_init(decoder, sampleRate, channels, plcMode, hrMode);
+        if (r != LC3PLUS_Error.LC3PLUS_OK) {
+            throw new IOException("lc3plus_dec_init: " + ERROR_MESSAGES[r]);
+        }
+
+        r = INSTANCE.lc3plus_dec_set_frame_dms(decoder, (int) (frameMs * 10));
+        if (r != LC3PLUS_Error.LC3PLUS_OK) {
+            throw new IOException("lc3plus_dec_set_frame_dms: " + ERROR_MESSAGES[r]);
+        }
+
+        r = INSTANCE.lc3plus_dec_set_ep_enabled(decoder, epMode ? 1 : 0);
+        if (r != LC3PLUS_Error.LC3PLUS_OK) {
+            throw new IOException("lc3plus_dec_set_ep_enabled: " + ERROR_MESSAGES[r]);
+        }
+    }
+
+    @Override
+    public void reset() throws IOException {
+        setup();
+    }
+
+    @Override
+    public int getOutputSamples() {
+        return samples;
+    }
+
+    @Override
+    public int getDelay() {
+        return delay;
+    }
+
+    @Override
+    public ByteBuffer getInputBuffer() {
+        return inputBuffer;
+    }
+
+    /** */
+    private Memory scratch() {
+        return scratch != null ? scratch : JnaBackend.scratches.get(scratchSize);
+    }
+
+    @Override
+    public void decode16(int nBytes, int bfiExt, short[][] out, int off) throws IOException {
+        int r = Lc3DirectLibrary.lc3plus_dec16(decoder, input, nBytes, output16s, scratch(), bfiExt);
+        if (r != LC3PLUS_Error.LC3PLUS_OK) {
+            throw new IOException("lc3plus_dec16: " + ERROR_MESSAGES[r]);
+        }
+        for (int ch = 0; ch < channels; ch++) {
+            output16ch[ch].read(0, out[ch], off, samples);
+        }
+    }
+
+    @Override
+    public void decode24(int nBytes, int bfiExt, int[][] out, int off) throws IOException {
+        if (output24s == null) {
+            output24s = blocks.allocate((long) channels * Native.POINTER_SIZE);
+            output24ch = new Memory[channels];
+            for (int i = 0; i < channels; i++) {
+                output24ch[i] = blocks.allocate((long) samples * Integer.BYTES);
+                output24s.setPointer((long) i * Native.POINTER_SIZE, output24ch[i]);
+            }
+        }
+        int r = Lc3DirectLibrary.lc3plus_dec24(decoder, input, nBytes, output24s, scratch(), bfiExt);
+        if (r != LC3PLUS_Error.LC3PLUS_OK) {
+            throw new IOException("lc3plus_dec24: " + ERROR_MESSAGES[r]);
+        }
+        for (int ch = 0; ch < channels; ch++) {
+            output24ch[ch].read(0, out[ch], off, samples);
+        }
+    }
+
+    /** frees all native blocks, calling twice is harmless */
+    @Override
+    public void close() {
+        cleanable.clean();
+    }
+}
+
+/* */
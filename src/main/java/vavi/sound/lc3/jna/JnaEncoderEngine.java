@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.jna;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import vavi.sound.lc3.jna.Lc3Library.LC3PLUS_Error;
+import vavi.sound.lc3.spi.EncoderEngine;
+import vavi.sound.lc3.spi.ScratchProvider;
+import vavi.util.Debug;
+
+import static vavi.sound.lc3.jna.Lc3Library.ERROR_MESSAGES;
+import static vavi.sound.lc3.jna.Lc3Library.Holder.INSTANCE;
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_MAX_BYTES;
+
+
+/**
+ * EncoderEngine by JNA.
+ * <p>
+ * setup calls go through {@link Lc3Library}, per frame calls through {@link Lc3DirectLibrary}.
+ * <p>
+ * every native block is held by the engine until {@link #close()} frees them all,
+ * an engine not closed is freed by a {@link Cleaner} after it becomes unreachable.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class JnaEncoderEngine implements EncoderEngine {
+
+    /** */
+    private final MemoryBlocks blocks = new MemoryBlocks();
+    /** runs {@link #blocks} once */
+    private final Cleaner.Cleanable cleanable;
+
+    /** the encoder structure */
+    private Memory encoder;
+    /** encoded frame */
+    private Memory output;
+    /** direct view of {@link #output} */
+    private ByteBuffer outputBuffer;
+    /** int* num_bytes */
+    private Memory numBytes;
+    /** own scratch, null when shared by {@link JnaBackend#scratches} */
+    private Memory scratch;
+    /** */
+    private int scratchSize;
+    /** pointer array */
+    private Memory input16s;
+    /** pcm to encode */
+    private Memory[] input16ch;
+    /** pointer array for 24bit, allocated at the first 24bit encoding */
+    private Memory input24s;
+    /** 24bit pcm to encode */
+    private Memory[] input24ch;
+    /** */
+    private final int channels;
+    /** */
+    private int samples;
+
+    /**
+     * init encoder.
+     * the encoder structure itself is passed as LC3PLUS_Enc*, not a reference to it.
+     */
+    public JnaEncoderEngine(int sampleRate, int channels, int hrMode, float frameMs, int bitrate, int epMode) throws IOException {
+        this.channels = channels;
+        cleanable = MemoryBlocks.cleaner.register(this, blocks);
+        try {
+            init(sampleRate, hrMode, frameMs, bitrate, epMode);
+        } catch (IOException | RuntimeException | Error e) {
+            cleanable.clean();
+            throw e;
+        }
+    }
+
+    /** */
+    @SuppressWarnings("deprecation")
+    private void init(int sampleRate, int hrMode, float frameMs, int bitrate, int epMode) throws IOException {
+        int size = INSTANCE.lc3plus_enc_get_size(sampleRate, channels);
+        encoder = blocks.allocate(size);
+Debug.println(Level.FINER, encoder.size() + ", " + encoder);
+
+Debug.println(Level.FINE, "hrMode: " + hrMode);
+        int r = INSTANCE.lc3plus_enc_init(encoder, sampleRate, channels, hrMode);
+        check("lc3plus_enc_init", r);
+
+        r = INSTANCE.lc3plus_enc_set_ep_mode(encoder, epMode);
+        check("lc3plus_enc_set_ep_mode", r);
+
+        r = INSTANCE.lc3plus_enc_set_frame_dms(encoder, (int) (frameMs * 10));
+        check("lc3plus_enc_set_frame_dms", r);
+
+        setBitrate(bitrate);
+
+        samples = INSTANCE.lc3plus_enc_get_input_samples(encoder);
+Debug.println(Level.FINE, "samples: " + samples);
+
+        scratchSize = INSTANCE.lc3plus_enc_get_scratch_size(encoder);
+Debug.println(Level.FINE, "scratchSize: " + scratchSize);
+        if (!ScratchProvider.isShared()) {
+            scratch = blocks.allocate(scratchSize);
+        }
+
+        output = blocks.allocate(LC3PLUS_MAX_BYTES);
+        outputBuffer = output.getByteBuffer(0, output.size());
+        numBytes = blocks.allocate(Integer.BYTES);
+
+        input16s = blocks.allocate((long) channels * Native.POINTER_SIZE);
+        input16ch = new Memory[channels];
+        for (int i = 0; i < channels; i++) {
+            input16ch[i] = blocks.allocate((long) samples * Short.BYTES);
+            input16s.setPointer((long) i * Native.POINTER_SIZE, input16ch[i]);
+        }
+    }
+
+    /** */
+    private static void check(String function, int r) throws IOException {
+        if (r != LC3PLUS_Error.LC3PLUS_OK) {
+            throw new IOException(function + ": " + ERROR_MESSAGES[r]);
+        }
+    }
+
+    @Override
+    public int getInputSamples() {
+        return samples;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public int getDelay() {
+        return INSTANCE.lc3plus_enc_get_delay(encoder);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public int getRealBitrate() {
+        return INSTANCE.lc3plus_enc_get_real_bitrate(encoder);
+    }
+
+    @Override
+    public ByteBuffer getOutputBuffer() {
+        return outputBuffer;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setBitrate(int bitrate) throws IOException {
+        check("lc3plus_enc_set_bitrate", INSTANCE.lc3plus_enc_set_bitrate(encoder, bitrate));
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setBandwidth(int bandwidth) throws IOException {
+        check("lc3plus_enc_set_bandwidth", INSTANCE.lc3plus_enc_set_bandwidth(encoder, bandwidth));
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setLfe(boolean lfe) throws IOException {
+        check("lc3plus_enc_set_lfe", INSTANCE.lc3plus_enc_set_lfe(encoder, lfe ? 1 : 0));
+    }
+
+    /** */
+    private Memory scratch() {
+        return scratch != null ? scratch : JnaBackend.scratches.get(scratchSize);
+    }
+
+    @Override
+    public int encode16(short[][] in, int off) throws IOException {
+        for (int ch = 0; ch < channels; ch++) {
+            input16ch[ch].write(0, in[ch], off, samples);
+        }
+        int r = Lc3DirectLibrary.lc3plus_enc16(encoder, input16s, output, numBytes, scratch());
+        check("lc3plus_enc16", r);
+        return numBytes.getInt(0);
+    }
+
+    @Override
+    public int encode24(int[][] in, int off) throws IOException {
+        if (input24s == null) {
+            input24s = blocks.allocate((long) channels * Native.POINTER_SIZE);
+            input24ch = new Memory[channels];
+            for (int i = 0; i < channels; i++) {
+                input24ch[i] = blocks.allocate((long) samples * Integer.BYTES);
+                input24s.setPointer((long) i * Native.POINTER_SIZE, input24ch[i]);
+            }
+        }
+        for (int ch = 0; ch < channels; ch++) {
+            input24ch[ch].write(0, in[ch], off, samples);
+        }
+        int r = Lc3DirectLibrary.lc3plus_enc24(encoder, input24s, output, numBytes, scratch());
+        check("lc3plus_enc24", r);
+        return numBytes.getInt(0);
+    }
+
+    /** frees all native blocks, calling twice is harmless */
+    @Override
+    public void close() {
+        cleanable.clean();
+    }
+}
+
+/* */
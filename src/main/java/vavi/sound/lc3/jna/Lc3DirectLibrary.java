@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.jna;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+
+/**
+ * Direct mapped functions of <b>lc3</b> which are called per frame.
+ * <p>
+ * direct mapping skips the proxy dispatch and the reflective argument
+ * conversion of {@link Lc3Library}, use {@link Lc3Library} for the rest.
+ * all pointers are plain addresses, so pass the decoder/encoder structure itself
+ * and the array of channel buffer pointers.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ * @see "https://github.com/java-native-access/jna/blob/master/www/DirectMapping.md"
+ */
+public final class Lc3DirectLibrary {
+
+    static {
+        Native.register(Lc3Library.Holder.JNA_NATIVE_LIB);
+    }
+
+    private Lc3DirectLibrary() {
+    }
+
+    /**
+     * Original signature : <code>LC3PLUS_Error lc3plus_dec16(LC3PLUS_Dec*, void*, int, int16_t**, void*, int)</code><br>
+     * @see Lc3Library#lc3plus_dec16(Pointer, Pointer, int, Pointer, Pointer, int)
+     */
+    public static native int lc3plus_dec16(Pointer decoder, Pointer input_bytes, int num_bytes, Pointer output_samples, Pointer scratch, int bfi_ext);
+
+    /**
+     * Original signature : <code>LC3PLUS_Error lc3plus_dec24(LC3PLUS_Dec*, void*, int, int32_t**, void*, int)</code><br>
+     * @see Lc3Library#lc3plus_dec24(Pointer, Pointer, int, Pointer, Pointer, int)
+     */
+    public static native int lc3plus_dec24(Pointer decoder, Pointer input_bytes, int num_bytes, Pointer output_samples, Pointer scratch, int bfi_ext);
+
+    /**
+     * Original signature : <code>LC3PLUS_Error lc3plus_enc16(LC3PLUS_Enc*, int16_t**, void*, int*, void*)</code><br>
+     * @param num_bytes int* [out]
+     */
+    public static native int lc3plus_enc16(Pointer encoder, Pointer input_samples, Pointer output_bytes, Pointer num_bytes, Pointer scratch);
+
+    /**
+     * Original signature : <code>LC3PLUS_Error lc3plus_enc24(LC3PLUS_Enc*, int32_t**, void*, int*, void*)</code><br>
+     * @param num_bytes int* [out]
+     */
+    public static native int lc3plus_enc24(Pointer encoder, Pointer input_samples, Pointer output_bytes, Pointer num_bytes, Pointer scratch);
+}
@@ -21,8 +21,25 @@ import com.sun.jna.ptr.PointerByReference;
 public interface Lc3Library extends Library {
 
     String JNA_LIBRARY_NAME = "LC3plus";
-    NativeLibrary JNA_NATIVE_LIB = NativeLibrary.getInstance(Lc3Library.JNA_LIBRARY_NAME);
-    Lc3Library INSTANCE = Native.load(Lc3Library.JNA_LIBRARY_NAME, Lc3Library.class);
+
+    /**
+     * The library is loaded when this is touched first, not when this interface is.
+     * a bundled one is extracted by {@link Lc3NativeLoader} before.
+     */
+    final class Holder {
+
+        private Holder() {
+        }
+
+        public static final NativeLibrary JNA_NATIVE_LIB;
+        public static final Lc3Library INSTANCE;
+
+        static {
+            Lc3NativeLoader.extract();
+            JNA_NATIVE_LIB = NativeLibrary.getInstance(Lc3Library.JNA_LIBRARY_NAME);
+            INSTANCE = Native.load(Lc3Library.JNA_LIBRARY_NAME, Lc3Library.class);
+        }
+    }
 
     /**
      * <i>native declaration : lc3.h</i><br>
@@ -817,6 +834,13 @@ public interface Lc3Library extends Library {
 
     int lc3plus_dec16(PointerByReference decoder, Pointer input_bytes, int num_bytes, NativeLong output_samples, Pointer scratch, int bfi_ext);
 
+    /**
+     * @param decoder the decoder structure itself
+     * @param output_samples the array of channel buffer pointers itself
+     * @see Lc3DirectLibrary#lc3plus_dec16(Pointer, Pointer, int, Pointer, Pointer, int)
+     */
+    int lc3plus_dec16(Pointer decoder, Pointer input_bytes, int num_bytes, Pointer output_samples, Pointer scratch, int bfi_ext);
+
     /**
      * Decode compressed LC3 frame to 24 bit PCM output.<br>
      * The output samples are 24-bit values, sign-extended to 32-bit.<br>
@@ -838,6 +862,13 @@ public interface Lc3Library extends Library {
      */
     int lc3plus_dec24(PointerByReference decoder, Pointer input_bytes, int num_bytes, PointerByReference output_samples, Pointer scratch, int bfi_ext);
 
+    /**
+     * @param decoder the decoder structure itself
+     * @param output_samples the array of channel buffer pointers itself
+     * @see Lc3DirectLibrary#lc3plus_dec24(Pointer, Pointer, int, Pointer, Pointer, int)
+     */
+    int lc3plus_dec24(Pointer decoder, Pointer input_bytes, int num_bytes, Pointer output_samples, Pointer scratch, int bfi_ext);
+
     /**
      * Get the size of the LC3 decoder struct for a samplerate / channel / plc_mode configuration.<br>
      * If memory is not restricted LC3PLUS_Dec_MAX_SIZE can be used for all configurations.<br>
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.jna;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
+
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.Platform;
+import vavi.util.Debug;
+
+
+/**
+ * Extracts the library bundled in the class path once.
+ * <p>
+ * a library at "{os}-{arch}/" of the class path (e.g. "linux-x86-64/libLC3plus.so",
+ * "linux-aarch64/libLC3plus.so") is copied into the cache directory
+ * and reused by later processes as long as the bundled one is not changed.
+ * the cache directory is specified by {@link #CACHE_PROPERTY},
+ * "~/.cache/vavi-sound-lc3" by default.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public final class Lc3NativeLoader {
+
+    /** the cache directory */
+    public static final String CACHE_PROPERTY = "vavi.sound.lc3.cache";
+
+    private Lc3NativeLoader() {
+    }
+
+    /** */
+    private static boolean extracted;
+
+    /** */
+    private static Path directory;
+
+    /**
+     * Extracts the bundled library if any, and adds the directory to the jna search path.
+     *
+     * @return the directory where the library is, null when it is not bundled or failed
+     */
+    public static synchronized Path extract() {
+        if (!extracted) {
+            extracted = true;
+            try {
+                directory = extract(Lc3Library.JNA_LIBRARY_NAME);
+                if (directory != null) {
+Debug.println(Level.FINE, "extracted: " + directory);
+                    NativeLibrary.addSearchPath(Lc3Library.JNA_LIBRARY_NAME, directory.toString());
+                }
+            } catch (IOException e) {
+Debug.println(Level.WARNING, "extraction failed: " + e);
+            }
+        }
+        return directory;
+    }
+
+    /** */
+    private static Path extract(String libraryName) throws IOException {
+        String name = System.mapLibraryName(libraryName);
+        URL url = Lc3NativeLoader.class.getClassLoader().getResource(Platform.RESOURCE_PREFIX + "/" + name);
+        if (url == null) {
+            return null;
+        }
+        URLConnection connection = url.openConnection();
+        long length = connection.getContentLengthLong();
+        // a changed library goes to another directory
+        Path dir = cacheDirectory().resolve(Platform.RESOURCE_PREFIX).resolve(length + "-" + connection.getLastModified());
+        Path file = dir.resolve(name);
+        if (Files.exists(file) && Files.size(file) == length) {
+            connection.getInputStream().close();
+            return dir;
+        }
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, name, ".tmp");
+        try (InputStream is = connection.getInputStream()) {
+            Files.copy(is, temp, StandardCopyOption.REPLACE_EXISTING);
+            // other processes may extract at the same time
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return dir;
+    }
+
+    /** */
+    private static Path cacheDirectory() {
+        String dir = System.getProperty(CACHE_PROPERTY);
+        if (dir != null) {
+            return Paths.get(dir);
+        } else {
+            return Paths.get(System.getProperty("user.home"), ".cache", "vavi-sound-lc3");
+        }
+    }
+}
+
+/* */
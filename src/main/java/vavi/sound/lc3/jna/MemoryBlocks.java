@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.jna;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import com.sun.jna.Memory;
+import vavi.util.Debug;
+
+
+/**
+ * Owns the native blocks of a codec engine, run by {@link java.lang.ref.Cleaner}.
+ * this MUST NOT refer the engine, or the engine never becomes unreachable.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+final class MemoryBlocks implements Runnable {
+
+    /** frees engines not closed */
+    static final Cleaner cleaner = Cleaner.create();
+
+    /** */
+    private final List<Memory> memories = new ArrayList<>();
+
+    /** @return a block freed by {@link #run()} */
+    Memory allocate(long size) {
+        Memory m = new Memory(size);
+        memories.add(m);
+        return m;
+    }
+
+    @Override
+    public void run() {
+Debug.println(Level.FINER, "free: " + memories.size());
+        memories.forEach(Memory::close);
+        memories.clear();
+    }
+}
+
+/* */
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.spi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+
+/**
+ * The codec state of one LC3plus decoder, a binding to the codec implements this.
+ * <p>
+ * an engine is not thread safe, and {@link #close()} releases all memory it holds.
+ * an engine not closed should be released after it becomes unreachable (e.g. by a {@link java.lang.ref.Cleaner}).
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public interface DecoderEngine extends AutoCloseable {
+
+    /** @return decoded samples per channel of a frame */
+    int getOutputSamples();
+
+    /** @return the codec delay in samples, the decoded signal starts after them */
+    int getDelay();
+
+    /**
+     * @return a frame to decode is put from index 0 of this buffer,
+     *         direct, the capacity is LC3PLUS_MAX_BYTES
+     */
+    ByteBuffer getInputBuffer();
+
+    /**
+     * Decodes a frame in {@link #getInputBuffer()} to 16bit pcm.
+     *
+     * @param nBytes frame size in bytes, 0 means a lost frame
+     * @param bfiExt external bad frame indicator
+     * @param out per channel, each needs {@link #getOutputSamples()} samples from off
+     * @throws IOException the codec returns an error
+     */
+    void decode16(int nBytes, int bfiExt, short[][] out, int off) throws IOException;
+
+    /**
+     * Decodes a frame in {@link #getInputBuffer()} to 24bit pcm.
+     *
+     * @param nBytes frame size in bytes, 0 means a lost frame
+     * @param bfiExt external bad frame indicator
+     * @param out per channel, sign-extended, each needs {@link #getOutputSamples()} samples from off
+     * @throws IOException the codec returns an error
+     */
+    void decode24(int nBytes, int bfiExt, int[][] out, int off) throws IOException;
+
+    /**
+     * Initializes the codec state again for a new stream without reallocating anything.
+     *
+     * @throws IOException the codec returns an error
+     */
+    void reset() throws IOException;
+
+    /** releases all memory, MUST be idempotent */
+    @Override
+    void close();
+}
+
+/* */
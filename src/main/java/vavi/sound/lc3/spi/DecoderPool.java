@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.spi;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+import vavi.util.Debug;
+
+
+/**
+ * Keeps initialized decoders for reuse, keyed by the stream configuration.
+ * <p>
+ * a released decoder is reset in place and kept up to {@link #MAX_IDLE_PROPERTY} per key,
+ * decoders idle longer than {@link #IDLE_MILLIS_PROPERTY} are closed at the next borrow or release.
+ * the backend preferred at the borrowing time is a part of the key.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public final class DecoderPool {
+
+    /** idle decoders kept per key, 0 disables pooling */
+    public static final String MAX_IDLE_PROPERTY = "vavi.sound.lc3.pool.maxIdle";
+
+    /** idle decoders older than this are closed */
+    public static final String IDLE_MILLIS_PROPERTY = "vavi.sound.lc3.pool.idleMillis";
+
+    /** the stream configuration */
+    public record Key(String backend, int sampleRate, int channels, int plcMode, int hrMode, float frameMs, boolean epMode) {
+
+        /** the backend is the one preferred now */
+        public static Key of(int sampleRate, int channels, int plcMode, int hrMode, float frameMs, boolean epMode) {
+            return new Key(System.getProperty(Lc3Backends.BACKEND_PROPERTY), sampleRate, channels, plcMode, hrMode, frameMs, epMode);
+        }
+    }
+
+    /** */
+    private record Idle(DecoderEngine engine, long since) {}
+
+    /** */
+    private static final DecoderPool defaultPool = new DecoderPool(
+            Integer.getInteger(MAX_IDLE_PROPERTY, 4),
+            Long.getLong(IDLE_MILLIS_PROPERTY, 30_000));
+
+    /** @return the pool configured by system properties */
+    public static DecoderPool getDefault() {
+        return defaultPool;
+    }
+
+    /** newest last */
+    private final Map<Key, Deque<Idle>> pool = new ConcurrentHashMap<>();
+
+    /** */
+    private final int maxIdle;
+
+    /** */
+    private final long idleNanos;
+
+    /**
+     * @param maxIdle idle decoders kept per key
+     * @param idleMillis idle decoders older than this are closed
+     */
+    public DecoderPool(int maxIdle, long idleMillis) {
+        this.maxIdle = maxIdle;
+        this.idleNanos = idleMillis * 1_000_000;
+    }
+
+    /**
+     * Returns an idle decoder or creates new one.
+     *
+     * @throws IOException the codec rejects the parameters
+     * @throws IllegalStateException no backend is available
+     */
+    public DecoderEngine borrow(Key key) throws IOException {
+        evict();
+        Deque<Idle> idles = pool.get(key);
+        if (idles != null) {
+            synchronized (idles) {
+                Idle idle = idles.pollLast();
+                if (idle != null) {
+Debug.println(Level.FINER, "reuse: " + key);
+                    return idle.engine;
+                }
+            }
+        }
+        return Lc3Backends.createDecoder(key.sampleRate, key.channels, key.plcMode, key.hrMode, key.frameMs, key.epMode);
+    }
+
+    /**
+     * Resets the decoder and keeps it, closes it when the pool is full or it cannot be reset.
+     * the caller MUST NOT use the decoder after this.
+     */
+    public void release(Key key, DecoderEngine engine) {
+        if (maxIdle > 0) {
+            try {
+                engine.reset();
+                Deque<Idle> idles = pool.computeIfAbsent(key, k -> new ArrayDeque<>());
+                synchronized (idles) {
+                    if (idles.size() < maxIdle) {
+                        idles.addLast(new Idle(engine, System.nanoTime()));
+                        engine = null;
+                    }
+                }
+            } catch (IOException e) {
+Debug.println(Level.WARNING, "reset failed, discard: " + e);
+            }
+        }
+        if (engine != null) {
+            engine.close();
+        }
+        evict();
+    }
+
+    /** closes decoders idle too long */
+    private void evict() {
+        long now = System.nanoTime();
+        for (Deque<Idle> idles : pool.values()) {
+            synchronized (idles) {
+                for (Iterator<Idle> i = idles.iterator(); i.hasNext(); ) {
+                    Idle idle = i.next();
+                    if (now - idle.since < idleNanos) {
+                        break; // older ones come first
+                    }
+                    i.remove();
+                    idle.engine.close();
+                }
+            }
+        }
+    }
+
+    /** closes all idle decoders */
+    public void clear() {
+        for (Deque<Idle> idles : pool.values()) {
+            synchronized (idles) {
+                idles.forEach(idle -> idle.engine.close());
+                idles.clear();
+            }
+        }
+    }
+
+    /** @return the number of idle decoders */
+    public int size() {
+        int size = 0;
+        for (Deque<Idle> idles : pool.values()) {
+            synchronized (idles) {
+                size += idles.size();
+            }
+        }
+        return size;
+    }
+}
+
+/* */
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.spi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+
+/**
+ * The codec state of one LC3plus encoder, a binding to the codec implements this.
+ * <p>
+ * an engine is not thread safe, and {@link #close()} releases all memory it holds.
+ * an engine not closed should be released after it becomes unreachable (e.g. by a {@link java.lang.ref.Cleaner}).
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public interface EncoderEngine extends AutoCloseable {
+
+    /** @return pcm samples per channel of a frame */
+    int getInputSamples();
+
+    /** @return the codec delay in samples */
+    int getDelay();
+
+    /** @return the bitrate the frames are actually encoded at */
+    int getRealBitrate();
+
+    /**
+     * @return an encoded frame is put from index 0 of this buffer,
+     *         direct, the capacity is LC3PLUS_MAX_BYTES
+     */
+    ByteBuffer getOutputBuffer();
+
+    /**
+     * @param bitrate total of all channels in bps
+     * @throws IOException the codec rejects the value
+     */
+    void setBitrate(int bitrate) throws IOException;
+
+    /**
+     * @param bandwidth cutoff frequency in Hz
+     * @throws IOException the codec rejects the value
+     */
+    void setBandwidth(int bandwidth) throws IOException;
+
+    /**
+     * @param lfe true for a low frequency effects channel
+     * @throws IOException the codec rejects the value
+     */
+    void setLfe(boolean lfe) throws IOException;
+
+    /**
+     * Encodes 16bit pcm into {@link #getOutputBuffer()}.
+     *
+     * @param in per channel, each needs {@link #getInputSamples()} samples from off
+     * @return the encoded frame size in bytes
+     * @throws IOException the codec returns an error
+     */
+    int encode16(short[][] in, int off) throws IOException;
+
+    /**
+     * Encodes 24bit pcm into {@link #getOutputBuffer()}.
+     *
+     * @param in per channel, sign-extended, each needs {@link #getInputSamples()} samples from off
+     * @return the encoded frame size in bytes
+     * @throws IOException the codec returns an error
+     */
+    int encode24(int[][] in, int off) throws IOException;
+
+    /** releases all memory, MUST be idempotent */
+    @Override
+    void close();
+}
+
+/* */
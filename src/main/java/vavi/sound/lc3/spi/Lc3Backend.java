@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.spi;
+
+import java.io.IOException;
+
+
+/**
+ * A binding to the LC3plus codec, found by {@link java.util.ServiceLoader}.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ * @see Lc3Backends
+ */
+public interface Lc3Backend {
+
+    /** @return the name to select this by {@link Lc3Backends#BACKEND_PROPERTY} */
+    String getName();
+
+    /** @return a higher one is preferred when no backend is specified */
+    int getPriority();
+
+    /**
+     * Probes whether this backend works on this host, e.g. the native library is loadable.
+     * this must not throw.
+     */
+    boolean isAvailable();
+
+    /**
+     * @throws IOException the codec rejects the parameters
+     */
+    DecoderEngine createDecoder(int sampleRate, int channels, int plcMode, int hrMode, float frameMs, boolean epMode) throws IOException;
+
+    /** @return true when {@link #createEncoder} is implemented */
+    default boolean hasEncoder() {
+        return false;
+    }
+
+    /**
+     * Called only when {@link #hasEncoder()} is true.
+     *
+     * @param bitrate total of all channels in bps
+     * @param epMode one of LC3PLUS_EpMode
+     * @throws IOException the codec rejects the parameters
+     * @throws UnsupportedOperationException this backend has no encoder
+     */
+    default EncoderEngine createEncoder(int sampleRate, int channels, int hrMode, float frameMs, int bitrate, int epMode) throws IOException {
+        throw new UnsupportedOperationException(getName() + " has no encoder");
+    }
+}
+
+/* */
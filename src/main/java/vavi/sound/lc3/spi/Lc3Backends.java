@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.spi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+
+import vavi.util.Debug;
+
+
+/**
+ * Selects a {@link Lc3Backend}.
+ * <p>
+ * the backend specified by {@link #BACKEND_PROPERTY} is tried first, then the other
+ * available ones in order of {@link Lc3Backend#getPriority()}.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public final class Lc3Backends {
+
+    /** the preferred backend name, e.g. "jna", "ffm" */
+    public static final String BACKEND_PROPERTY = "vavi.sound.lc3.backend";
+
+    private Lc3Backends() {
+    }
+
+    /** @return available backends in order of preference */
+    public static List<Lc3Backend> candidates() {
+        List<Lc3Backend> backends = new ArrayList<>();
+        for (Lc3Backend backend : ServiceLoader.load(Lc3Backend.class)) {
+            if (backend.isAvailable()) {
+                backends.add(backend);
+            } else {
+Debug.println(Level.FINE, "not available: " + backend.getName());
+            }
+        }
+        String preferred = System.getProperty(BACKEND_PROPERTY);
+        backends.sort(Comparator.comparing((Lc3Backend b) -> !b.getName().equals(preferred))
+                .thenComparing(Comparator.comparingInt(Lc3Backend::getPriority).reversed()));
+        return backends;
+    }
+
+    /**
+     * Creates a decoder by the most preferred backend which works.
+     *
+     * @throws IOException the codec rejects the parameters
+     * @throws IllegalStateException no backend is available
+     */
+    public static DecoderEngine createDecoder(int sampleRate, int channels, int plcMode, int hrMode, float frameMs, boolean epMode) throws IOException {
+        IllegalStateException e = new IllegalStateException("no lc3 backend is available");
+        for (Lc3Backend backend : candidates()) {
+            try {
+                DecoderEngine engine = backend.createDecoder(sampleRate, channels, plcMode, hrMode, frameMs, epMode);
+Debug.println(Level.FINE, "backend: " + backend.getName());
+                return engine;
+            } catch (LinkageError | IllegalStateException | UnsupportedOperationException f) {
+Debug.println(Level.WARNING, "backend " + backend.getName() + " failed, fall back: " + f);
+                e.addSuppressed(f);
+            }
+        }
+        throw e;
+    }
+
+    /**
+     * Creates an encoder by the most preferred backend which has one.
+     *
+     * @param bitrate total of all channels in bps
+     * @param epMode one of LC3PLUS_EpMode
+     * @throws IOException the codec rejects the parameters
+     * @throws IllegalStateException no backend is available
+     */
+    public static EncoderEngine createEncoder(int sampleRate, int channels, int hrMode, float frameMs, int bitrate, int epMode) throws IOException {
+        IllegalStateException e = new IllegalStateException("no lc3 backend with an encoder is available");
+        for (Lc3Backend backend : candidates()) {
+            if (!backend.hasEncoder()) {
+Debug.println(Level.FINER, "no encoder: " + backend.getName());
+                continue;
+            }
+            try {
+                EncoderEngine engine = backend.createEncoder(sampleRate, channels, hrMode, frameMs, bitrate, epMode);
+Debug.println(Level.FINE, "backend: " + backend.getName());
+                return engine;
+            } catch (LinkageError | IllegalStateException f) {
+Debug.println(Level.FINE, "backend " + backend.getName() + " failed, fall back: " + f);
+                e.addSuppressed(f);
+            }
+        }
+        throw e;
+    }
+}
+
+/* */
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.spi;
+
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+
+/**
+ * Lends the scratch memory of a codec call.
+ * <p>
+ * LC3plus does not keep anything in the scratch between calls, so decoders and encoders
+ * on the same thread can share one region instead of holding their own.
+ * a region dropped by a thread is released by the memory type's own reclamation.
+ *
+ * @param <M> the native memory type of a backend
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public abstract class ScratchProvider<M> {
+
+    /** "false" makes each codec instance allocate its own scratch */
+    public static final String SHARED_PROPERTY = "vavi.sound.lc3.scratch.shared";
+
+    /** @return true when scratch regions are shared per thread, read at each codec creation */
+    public static boolean isShared() {
+        return Boolean.parseBoolean(System.getProperty(SHARED_PROPERTY, "true"));
+    }
+
+    /**
+     * @param size bytes needed
+     * @return a region of at least size bytes, valid until the calling thread's next codec call
+     */
+    public abstract M get(long size);
+
+    /**
+     * @param allocator allocates a region of the given bytes
+     * @param sizeOf the bytes of a region
+     * @param initialSize bytes allocated at the first use of a thread, the largest scratch usually
+     */
+    public static <M> ScratchProvider<M> perThread(LongFunction<M> allocator, ToLongFunction<M> sizeOf, long initialSize) {
+        return new ScratchProvider<>() {
+            final ThreadLocal<M> regions = new ThreadLocal<>();
+
+            @Override
+            public M get(long size) {
+                M region = regions.get();
+                if (region == null || sizeOf.applyAsLong(region) < size) {
+                    region = allocator.apply(Math.max(size, initialSize));
+                    regions.set(region);
+                }
+                return region;
+            }
+        };
+    }
+}
+
+/* */
@@ -6,72 +6,190 @@
 
 package vavi.sound.sampled.lc3;
 
-import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 
-import vavi.io.OutputEngine;
-import vavi.io.OutputEngineInputStream;
 import vavi.sound.lc3.Lc3Plus;
 
 
 /**
- * Converts an LC3 bitstream into a PCM 16bits/sample audio stream.
+ * Converts an LC3 bitstream into a PCM 16, 24, 32bits/sample or PCM float audio stream.
+ * <p>
+ * the codec delay at the head of the decoded pcm is dropped, so the stream is aligned to the
+ * encoded signal as the reference decoder does.
  *
  * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
  * @version 0.00 2023/05/31 umjammer initial version <br>
  */
 class Lc32PcmAudioInputStream extends AudioInputStream {
 
-    /** */
-    public Lc32PcmAudioInputStream(InputStream in, AudioFormat audioFormat, int length, Lc3Plus lc3Plus) throws IOException {
-        super(new OutputEngineInputStream(new Lc3OutputEngine(lc3Plus)), audioFormat, length);
+    /** @param length in sample frames of the decoded pcm, the decoded tail beyond it is not read */
+    public Lc32PcmAudioInputStream(InputStream in, AudioFormat audioFormat, long length, Lc3Plus lc3Plus) throws IOException {
+        super(new Lc3DecodingInputStream(lc3Plus, audioFormat), audioFormat, length);
     }
 
-    /** */
-    private static class Lc3OutputEngine implements OutputEngine {
+    /** decodes a frame into out from off, returns the number of samples */
+    @FunctionalInterface
+    private interface FrameDecoder {
+        int decode(int nBytes, byte[] out, int off) throws IOException;
+    }
+
+    /**
+     * Decodes as many frames as the caller's buffer holds at once, directly into it.
+     * only a frame which does not fit is decoded into the internal buffer.
+     * the pending bytes are always drained before the internal buffer is reused.
+     */
+    private static class Lc3DecodingInputStream extends InputStream {
+
+        /** frames decoded and dropped after frames are skipped, so the overlap state is valid */
+        private static final int PREROLL_FRAMES = 4;
+
+        /** */
+        private final Lc3Plus lc3Plus;
+
+        /** decodes in the target format */
+        private final FrameDecoder decoder;
+
+        /** decoded bytes of a frame */
+        private final int frameBytes;
+
+        /** a frame which does not fit the caller's buffer */
+        private final byte[] pending;
 
         /** */
-        private DataOutputStream out;
+        private int pendingPosition;
 
         /** */
-        private Lc3Plus lc3Plus;
+        private int pendingLength;
 
         /** */
-        public Lc3OutputEngine(Lc3Plus lc3Plus) throws IOException {
+        private boolean eof;
+
+        /** the codec delay is dropped at the first read or skip */
+        private boolean delayDropped;
+
+        /** for {@link #read()} */
+        private final byte[] single = new byte[1];
+
+        /** */
+        public Lc3DecodingInputStream(Lc3Plus lc3Plus, AudioFormat audioFormat) throws IOException {
             this.lc3Plus = lc3Plus;
+            int n = lc3Plus.getOutputSamples() * lc3Plus.getChannels();
+            if (AudioFormat.Encoding.PCM_FLOAT.equals(audioFormat.getEncoding())) {
+                this.frameBytes = n * Float.BYTES;
+                this.pending = new byte[frameBytes];
+                // through the float view of pending, no allocation per frame
+                FloatBuffer view = ByteBuffer.wrap(pending).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+                this.decoder = (nBytes, out, off) -> {
+                    int r = lc3Plus.decode(nBytes, view.clear());
+                    if (out != pending) {
+                        System.arraycopy(pending, 0, out, off, frameBytes);
+                    }
+                    return r;
+                };
+            } else {
+                int sampleSizeInBits = audioFormat.getSampleSizeInBits();
+                this.frameBytes = n * (sampleSizeInBits / 8);
+                this.pending = new byte[frameBytes];
+                this.decoder = switch (sampleSizeInBits) {
+                    case 24 -> lc3Plus::decode24;
+                    case 32 -> lc3Plus::decode32;
+                    default -> lc3Plus::decode;
+                };
+            }
         }
 
         @Override
-        public void initialize(OutputStream out) throws IOException {
-            if (this.out != null) {
-                throw new IOException("Already initialized");
-            } else {
-                this.out = new DataOutputStream(out);
+        public int read() throws IOException {
+            return read(single, 0, 1) == 1 ? single[0] & 0xff : -1;
+        }
+
+        /** drops {@link Lc3Plus#getDelay()} samples at the head of the decoded pcm, once */
+        private void dropDelay() throws IOException {
+            if (!delayDropped) {
+                delayDropped = true;
+                skip((long) lc3Plus.getDelay() * (frameBytes / lc3Plus.getOutputSamples()));
             }
         }
 
         @Override
-        public void execute() throws IOException {
-            if (out == null) {
-                throw new IOException("Not yet initialized");
-            } else {
-                try {
-                    int nBytes = lc3Plus.read();
-                    byte[] decodedData = lc3Plus.decode(nBytes);
-                    out.write(decodedData, 0, decodedData.length);
-                } catch (EOFException e) {
-                    out.close();
+        public int read(byte[] b, int off, int len) throws IOException {
+            dropDelay();
+            int l = Math.min(len, pendingLength - pendingPosition);
+            System.arraycopy(pending, pendingPosition, b, off, l);
+            pendingPosition += l;
+            try {
+                // whole frames go directly into the caller's buffer
+                while (!eof && len - l >= frameBytes) {
+                    decoder.decode(lc3Plus.read(), b, off + l);
+                    l += frameBytes;
+                }
+                // a partial frame only when nothing is returned yet
+                if (!eof && l == 0 && len > 0) {
+                    decoder.decode(lc3Plus.read(), pending, 0);
+                    pendingLength = frameBytes;
+                    pendingPosition = len;
+                    System.arraycopy(pending, 0, b, off, len);
+                    l = len;
                 }
+            } catch (EOFException e) {
+                eof = true;
+            }
+            return l == 0 && len > 0 ? -1 : l;
+        }
+
+        /**
+         * Skips whole frames at the bitstream level, then decodes {@link #PREROLL_FRAMES} frames before
+         * the target and drops them, the remainder in a frame is dropped from the decoded frame.
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            dropDelay();
+            if (n <= 0) {
+                return 0;
             }
+            long l = Math.min(n, pendingLength - pendingPosition);
+            pendingPosition += (int) l;
+            long frames = (n - l) / frameBytes;
+            int remainder = (int) ((n - l) % frameBytes);
+            try {
+                if (!eof && frames > PREROLL_FRAMES) {
+                    int skipped = lc3Plus.skipFrames((int) Math.min(frames - PREROLL_FRAMES, Integer.MAX_VALUE));
+                    l += (long) skipped * frameBytes;
+                    frames -= skipped;
+                    if (frames > PREROLL_FRAMES) {
+                        eof = true;
+                    }
+                }
+                for (; !eof && frames > 0; frames--) {
+                    decoder.decode(lc3Plus.read(), pending, 0);
+                    l += frameBytes;
+                }
+                if (!eof && remainder > 0) {
+                    decoder.decode(lc3Plus.read(), pending, 0);
+                    pendingLength = frameBytes;
+                    pendingPosition = remainder;
+                    l += remainder;
+                }
+            } catch (EOFException e) {
+                eof = true;
+            }
+            return l;
+        }
+
+        @Override
+        public int available() {
+            return pendingLength - pendingPosition;
         }
 
         @Override
-        public void finish() throws IOException {
+        public void close() throws IOException {
             lc3Plus.close();
         }
     }
@@ -6,12 +6,14 @@
 
 package vavi.sound.sampled.lc3;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Files;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
@@ -20,6 +22,7 @@ import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import javax.sound.sampled.spi.AudioFileReader;
 
+import vavi.sound.lc3.Lc3FrameSource;
 import vavi.sound.lc3.Lc3Plus;
 import vavi.util.Debug;
 
@@ -34,10 +37,20 @@ import vavi.util.Debug;
  */
 public class Lc3AudioFileReader extends AudioFileReader {
 
+    /**
+     * the header is checked as {@link #getAudioInputStream(File)} does, when it does not tell the signal length
+     * the frames of the mapped file are scanned.
+     */
     @Override
     public AudioFileFormat getAudioFileFormat(File file) throws UnsupportedAudioFileException, IOException {
-        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
-            return getAudioFileFormat(inputStream, (int) file.length());
+        AudioFileFormat audioFileFormat = probe(file);
+        if (audioFileFormat.getFrameLength() != AudioSystem.NOT_SPECIFIED) {
+            return audioFileFormat;
+        }
+        try (Lc3FrameSource source = Lc3FrameSource.map(file.toPath())) {
+            return getAudioFileFormat(new Lc3Plus(source));
+        } catch (IllegalArgumentException e) {
+            throw (UnsupportedAudioFileException) new UnsupportedAudioFileException(e.getMessage()).initCause(e);
         }
     }
 
@@ -64,7 +77,7 @@ public class Lc3AudioFileReader extends AudioFileReader {
      *                valid audio file data recognized by the system.
      * @exception IOException if an I/O exception occurs.
      */
-    protected AudioFileFormat getAudioFileFormat(InputStream bitStream, int mediaLength) throws UnsupportedAudioFileException, IOException {
+    protected AudioFileFormat getAudioFileFormat(InputStream bitStream, long mediaLength) throws UnsupportedAudioFileException, IOException {
 //Debug.println("here: " + bitStream.markSupported());
 Debug.println(Level.FINE, "enter available: " + bitStream.available());
         Lc3Plus lc3Plus;
@@ -75,20 +88,64 @@ Debug.println(Level.FINER, "error exit available: " + bitStream.available() + ",
 Debug.printStackTrace(Level.FINEST, e);
             throw (UnsupportedAudioFileException) new UnsupportedAudioFileException(e.getMessage()).initCause(e);
         }
-        // TODO AudioSystem.NOT_SPECIFIED cause IllegalArgumentException at Clip#open()
+        return getAudioFileFormat(lc3Plus);
+    }
+
+    /**
+     * @return the format which carries the decoder as the "lc3Plus" property, the frame length is
+     *         the decoded length when the header or a scan of the frames tells it
+     * @see Lc3Plus#getDecodedLength()
+     */
+    private static AudioFileFormat getAudioFileFormat(Lc3Plus lc3Plus) throws IOException {
         AudioFormat format = new AudioFormat(Lc3Encoding.LC3, lc3Plus.getSampleRate(), lc3Plus.getSampleSizeInBit(), lc3Plus.getChannels(), AudioSystem.NOT_SPECIFIED, AudioSystem.NOT_SPECIFIED, true, new HashMap<>() {{
             put("lc3Plus", lc3Plus);
+            put("bitrate", lc3Plus.getBitrate());
+            put("frameMs", lc3Plus.getFrameMs());
+            put("epMode", lc3Plus.isEpMode() ? 1 : 0);
+            put("hrMode", lc3Plus.getHrMode());
         }});
-        return new AudioFileFormat(Lc3FileFormatType.LC3, format, AudioSystem.NOT_SPECIFIED);
+        long length = lc3Plus.getDecodedLength();
+        if (length > 0) {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("duration", (long) (length * 1_000_000d / lc3Plus.getSampleRate()));
+            return new AudioFileFormat(Lc3FileFormatType.LC3, format, (int) Math.min(length, Integer.MAX_VALUE), properties);
+        } else {
+            return new AudioFileFormat(Lc3FileFormatType.LC3, format, AudioSystem.NOT_SPECIFIED);
+        }
+    }
+
+    /**
+     * Checks the header by a small stream, all files are offered to the reader
+     * and only an lc3 file is worth a mapping.
+     *
+     * @return the format by the header only
+     * @throws UnsupportedAudioFileException maybe not lc3, or an unsupported format
+     */
+    private AudioFileFormat probe(File file) throws UnsupportedAudioFileException, IOException {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file.toPath()), 32)) {
+            return getAudioFileFormat(inputStream, file.length());
+        }
     }
 
+    /**
+     * the file is memory mapped after the header is checked, the frames are decoded from the mapping
+     * without copies on the heap
+     */
     @Override
     public AudioInputStream getAudioInputStream(File file) throws UnsupportedAudioFileException, IOException {
-        InputStream inputStream = Files.newInputStream(file.toPath());
+        probe(file);
+        Lc3FrameSource source = Lc3FrameSource.map(file.toPath());
         try {
-            return getAudioInputStream(inputStream, (int) file.length());
-        } catch (UnsupportedAudioFileException | IOException e) {
-            inputStream.close();
+            Lc3Plus lc3Plus = new Lc3Plus(source);
+            AudioFileFormat audioFileFormat = getAudioFileFormat(lc3Plus);
+            // the same position as the decoder, the frame length is of the decoded pcm, not of this stream
+            return new AudioInputStream(source.inputStream(), audioFileFormat.getFormat(), AudioSystem.NOT_SPECIFIED);
+        } catch (IllegalArgumentException e) {
+Debug.println(Level.FINER, "error exit: " + e.getMessage());
+            source.close();
+            throw (UnsupportedAudioFileException) new UnsupportedAudioFileException(e.getMessage()).initCause(e);
+        } catch (IOException e) {
+            source.close();
             throw e;
         }
     }
@@ -122,8 +179,9 @@ Debug.printStackTrace(Level.FINEST, e);
      *                valid audio file data recognized by the system.
      * @exception IOException if an I/O exception occurs.
      */
-    protected AudioInputStream getAudioInputStream(InputStream inputStream, int mediaLength) throws UnsupportedAudioFileException, IOException {
+    protected AudioInputStream getAudioInputStream(InputStream inputStream, long mediaLength) throws UnsupportedAudioFileException, IOException {
         AudioFileFormat audioFileFormat = getAudioFileFormat(inputStream, mediaLength);
-        return new AudioInputStream(inputStream, audioFileFormat.getFormat(), audioFileFormat.getFrameLength());
+        // the frame size is not specified, a frame length would limit the bytes
+        return new AudioInputStream(inputStream, audioFileFormat.getFormat(), AudioSystem.NOT_SPECIFIED);
     }
 }
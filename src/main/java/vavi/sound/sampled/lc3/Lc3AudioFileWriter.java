@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.sampled.lc3;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.logging.Level;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.spi.AudioFileWriter;
+
+import vavi.sound.lc3.Lc3Plus;
+import vavi.util.Debug;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_MAX_BYTES;
+
+
+/**
+ * Provider for LC3 audio file writing services.
+ * <p>
+ * writes the header {@link Lc3Plus} reads (0xcc1c, header size, sample rate / 100,
+ * bitrate / 100, channels, frame ms * 100, ep mode, signal length, [hr mode]) and size prefixed frames.
+ * pcm streams are encoded by {@link Lc3FormatConversionProvider} with its default parameters,
+ * convert them before for other parameters.
+ * <p>
+ * the signal length (samples per channel) is patched at the end when the target is a file,
+ * otherwise the length of a pcm source or of an lc3 source by the reader is written when it is known,
+ * or 0 (unknown).
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class Lc3AudioFileWriter extends AudioFileWriter {
+
+    /** */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** the offset of signal length in the header */
+    private static final int SIGNAL_LENGTH_OFFSET = 14;
+
+    @Override
+    public AudioFileFormat.Type[] getAudioFileTypes() {
+        return new AudioFileFormat.Type[] { Lc3FileFormatType.LC3 };
+    }
+
+    @Override
+    public AudioFileFormat.Type[] getAudioFileTypes(AudioInputStream stream) {
+        AudioFormat format = stream.getFormat();
+        if (format.getEncoding() instanceof Lc3Encoding || Lc3FormatConversionProvider.isEncodable(format)) {
+            return getAudioFileTypes();
+        } else {
+            return new AudioFileFormat.Type[0];
+        }
+    }
+
+    @Override
+    public int write(AudioInputStream stream, AudioFileFormat.Type fileType, OutputStream out) throws IOException {
+        check(stream, fileType);
+        if (out instanceof FileOutputStream fos) {
+            return write(stream, fos.getChannel(), fos.getChannel());
+        } else {
+            return write(stream, Channels.newChannel(out), null);
+        }
+    }
+
+    @Override
+    public int write(AudioInputStream stream, AudioFileFormat.Type fileType, File out) throws IOException {
+        check(stream, fileType);
+        try (FileChannel channel = FileChannel.open(out.toPath(), CREATE, TRUNCATE_EXISTING, WRITE)) {
+            return write(stream, channel, channel);
+        }
+    }
+
+    /** */
+    private void check(AudioInputStream stream, AudioFileFormat.Type fileType) {
+        if (!isFileTypeSupported(fileType, stream)) {
+            throw new IllegalArgumentException("unsupported: " + fileType + ", " + stream.getFormat());
+        }
+    }
+
+    /** property or the default value */
+    private static Number property(AudioFormat format, String key, Number defaultValue) {
+        return format.getProperty(key) instanceof Number n ? n : defaultValue;
+    }
+
+    /** @return the samples per channel of a frame, 44.1 kHz is on the 48 kHz grid */
+    static int frameSamples(float sampleRate, float frameMs) {
+        return (int) ((sampleRate == 44100 ? 48000 : sampleRate) * frameMs / 1000);
+    }
+
+    /** @return the header, 20 bytes with hr mode, 18 bytes without */
+    static ByteBuffer header(AudioFormat format, long signalLength) {
+        int hrMode = property(format, "hrMode", 0).intValue();
+        int size = hrMode != 0 ? 20 : 18;
+        ByteBuffer header = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        header.putShort((short) 0xcc1c);
+        header.putShort((short) size);
+        header.putShort((short) (format.getSampleRate() / 100));
+        header.putShort((short) (property(format, "bitrate", format.getChannels() * 64000).intValue() / 100));
+        header.putShort((short) format.getChannels());
+        header.putShort((short) Math.round(property(format, "frameMs", 10).floatValue() * 100));
+        header.putShort((short) property(format, "epMode", 0).intValue());
+        header.putInt((int) signalLength);
+        if (hrMode != 0) {
+            header.putShort((short) hrMode);
+        }
+        return header.flip();
+    }
+
+    /** */
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @param source pcm is encoded here, the encoder is closed after writing, the source is not
+     * @param seekable the header is patched through this when not null
+     * @return bytes written
+     */
+    private static int write(AudioInputStream source, WritableByteChannel channel, FileChannel seekable) throws IOException {
+        if (!(source.getFormat().getEncoding() instanceof Lc3Encoding)) {
+            Pcm2Lc3AudioInputStream lc3 = (Pcm2Lc3AudioInputStream) new Lc3FormatConversionProvider().getAudioInputStream(Lc3Encoding.LC3, source);
+            try {
+                return write(lc3, source.getFrameLength(), channel, seekable);
+            } finally {
+                // the source is the caller's, only the encoder is ours
+                lc3.closeEncoder();
+            }
+        } else if (source.getFormat().getProperty("lc3Plus") instanceof Lc3Plus lc3Plus && lc3Plus.getDecodedLength() > 0) {
+            // by the reader
+            return write(source, lc3Plus.getDecodedLength(), channel, seekable);
+        } else {
+            return write(source, AudioSystem.NOT_SPECIFIED, channel, seekable);
+        }
+    }
+
+    /**
+     * @param lc3 size prefixed frames
+     * @param pcmLength samples per channel, or not specified
+     * @param seekable the header is patched through this when not null
+     * @return bytes written
+     */
+    private static int write(AudioInputStream lc3, long pcmLength, WritableByteChannel channel, FileChannel seekable) throws IOException {
+        AudioFormat format = lc3.getFormat();
+
+        long headerPosition = -1;
+        if (seekable != null) {
+            try {
+                headerPosition = seekable.position();
+            } catch (IOException e) {
+Debug.println(Level.FINE, "not seekable: " + e);
+            }
+        }
+        ByteBuffer header = header(format, pcmLength != AudioSystem.NOT_SPECIFIED ? pcmLength : 0);
+        long total = header.remaining();
+        writeFully(channel, header);
+
+        // frame by frame through the buffer
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] b = buffer.array();
+        long frames = 0;
+        while (true) {
+            if (buffer.remaining() < Short.BYTES + LC3PLUS_MAX_BYTES) {
+                total += buffer.flip().remaining();
+                writeFully(channel, buffer);
+                buffer.clear();
+            }
+            int p = buffer.position();
+            if (lc3.readNBytes(b, p, Short.BYTES) < Short.BYTES) {
+                break;
+            }
+            int n = (b[p] & 0xff) | ((b[p + 1] & 0xff) << 8);
+            if (n > LC3PLUS_MAX_BYTES) {
+                throw new IOException("broken frame: " + n + " bytes");
+            }
+            if (lc3.readNBytes(b, p + Short.BYTES, n) < n) {
+                throw new EOFException("frame is truncated");
+            }
+            buffer.position(p + Short.BYTES + n);
+            frames++;
+        }
+        total += buffer.flip().remaining();
+        writeFully(channel, buffer);
+
+        if (headerPosition >= 0) {
+            long signalLength = lc3 instanceof Pcm2Lc3AudioInputStream encoding ? encoding.getSignalLength() :
+                    pcmLength != AudioSystem.NOT_SPECIFIED ? pcmLength :
+                    frames * frameSamples(format.getSampleRate(), property(format, "frameMs", 10).floatValue());
+Debug.println(Level.FINE, "frames: " + frames + ", signalLength: " + signalLength);
+            ByteBuffer patch = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(0, (int) signalLength);
+            try {
+                while (patch.hasRemaining()) {
+                    seekable.write(patch, headerPosition + SIGNAL_LENGTH_OFFSET + patch.position());
+                }
+            } catch (IOException e) {
+Debug.println(Level.WARNING, "signal length is not patched: " + e);
+            }
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+}
+
+/* */
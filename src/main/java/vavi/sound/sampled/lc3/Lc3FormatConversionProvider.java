@@ -7,36 +7,81 @@
 package vavi.sound.sampled.lc3;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.spi.FormatConversionProvider;
 
 import vavi.sound.lc3.Lc3Plus;
+import vavi.sound.lc3.Lc3PlusEncoder;
+
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_MAX_CHANNELS;
 
 
 /**
  * Lc3FormatConversionProvider.
+ * <p>
+ * the encoding parameters are given as properties of the target LC3 format.
+ * <ul>
+ *  <li>"bitrate" ... Integer, total of all channels in bps, default 64000 per channel</li>
+ *  <li>"frameMs" ... Float, 10, 5 or 2.5, default 10</li>
+ *  <li>"epMode" ... Integer, LC3PLUS_EpMode, default 0 (off)</li>
+ *  <li>"hrMode" ... Integer, 1 for the high resolution mode, default 0</li>
+ * </ul>
+ * the encoded stream has all of them as the properties of its format.
  *
  * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
  * @version 0.00 2023/05/31 umjammer initial version <br>
  */
 public class Lc3FormatConversionProvider extends FormatConversionProvider {
 
+    /** decoding targets */
+    private static boolean isPcm(AudioFormat.Encoding encoding) {
+        return encoding.equals(AudioFormat.Encoding.PCM_SIGNED) || encoding.equals(AudioFormat.Encoding.PCM_FLOAT);
+    }
+
+    /** encoding sources, 16 or 24bit little endian and the parameters the codec accepts */
+    static boolean isEncodable(AudioFormat format) {
+        return format.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED) &&
+                !format.isBigEndian() &&
+                (format.getSampleSizeInBits() == 16 || format.getSampleSizeInBits() == 24) &&
+                format.getChannels() >= 1 && format.getChannels() <= LC3PLUS_MAX_CHANNELS &&
+                switch ((int) format.getSampleRate()) {
+                    case 8000, 16000, 24000, 32000, 44100, 48000, 96000 -> true;
+                    default -> false;
+                };
+    }
+
+    /** the codec has hrMode only at 48 and 96 kHz */
+    private static boolean isHrModeCapable(float sampleRate) {
+        return sampleRate == 48000 || sampleRate == 96000;
+    }
+
+    /** the codec encodes 96 kHz only with hrMode */
+    private static boolean isHrModeOnly(float sampleRate) {
+        return sampleRate == 96000;
+    }
+
     @Override
     public AudioFormat.Encoding[] getSourceEncodings() {
-        return new AudioFormat.Encoding[] { Lc3Encoding.LC3 };
+        return new AudioFormat.Encoding[] { Lc3Encoding.LC3, AudioFormat.Encoding.PCM_SIGNED };
     }
 
     @Override
     public AudioFormat.Encoding[] getTargetEncodings() {
-        return new AudioFormat.Encoding[] { AudioFormat.Encoding.PCM_SIGNED };
+        return new AudioFormat.Encoding[] { AudioFormat.Encoding.PCM_SIGNED, AudioFormat.Encoding.PCM_FLOAT, Lc3Encoding.LC3 };
     }
 
     @Override
     public AudioFormat.Encoding[] getTargetEncodings(AudioFormat sourceFormat) {
         if (sourceFormat.getEncoding() instanceof Lc3Encoding) {
-            return new AudioFormat.Encoding[] { AudioFormat.Encoding.PCM_SIGNED };
+            return new AudioFormat.Encoding[] { AudioFormat.Encoding.PCM_SIGNED, AudioFormat.Encoding.PCM_FLOAT };
+        } else if (isEncodable(sourceFormat)) {
+            return new AudioFormat.Encoding[] { Lc3Encoding.LC3 };
         } else {
             return new AudioFormat.Encoding[0];
         }
@@ -51,13 +96,88 @@ public class Lc3FormatConversionProvider extends FormatConversionProvider {
                                 16,         // sample size in bits
                                 sourceFormat.getChannels(),
                                 true,       // signed
-                                false)      // little endian (for PCM wav)
+                                false),     // little endian (for PCM wav)
+                new AudioFormat(sourceFormat.getSampleRate(),
+                                24,         // hi-res, packed
+                                sourceFormat.getChannels(),
+                                true,
+                                false),
+                new AudioFormat(sourceFormat.getSampleRate(),
+                                32,         // hi-res, 24bit in 32bit container
+                                sourceFormat.getChannels(),
+                                true,
+                                false)
+            };
+        } else if (sourceFormat.getEncoding() instanceof Lc3Encoding && targetEncoding.equals(AudioFormat.Encoding.PCM_FLOAT)) {
+            return new AudioFormat[] {
+                new AudioFormat(AudioFormat.Encoding.PCM_FLOAT,
+                                sourceFormat.getSampleRate(),
+                                32,         // sample size in bits
+                                sourceFormat.getChannels(),
+                                sourceFormat.getChannels() * Float.BYTES,
+                                sourceFormat.getSampleRate(),
+                                false)      // little endian
             };
+        } else if (isEncodable(sourceFormat) && targetEncoding instanceof Lc3Encoding) {
+            List<AudioFormat> formats = new ArrayList<>();
+            if (!isHrModeOnly(sourceFormat.getSampleRate())) {
+                formats.add(new AudioFormat(Lc3Encoding.LC3,
+                                sourceFormat.getSampleRate(),
+                                16,         // 24 for hrMode, as Lc3AudioFileReader tells
+                                sourceFormat.getChannels(),
+                                AudioSystem.NOT_SPECIFIED,
+                                AudioSystem.NOT_SPECIFIED,
+                                false));
+            }
+            if (isHrModeCapable(sourceFormat.getSampleRate())) {
+                formats.add(new AudioFormat(Lc3Encoding.LC3,
+                                sourceFormat.getSampleRate(),
+                                24,
+                                sourceFormat.getChannels(),
+                                AudioSystem.NOT_SPECIFIED,
+                                AudioSystem.NOT_SPECIFIED,
+                                false));
+            }
+            return formats.toArray(AudioFormat[]::new);
         } else {
             return new AudioFormat[0];
         }
     }
 
+    /** property or the default value */
+    private static Number property(AudioFormat format, String key, Number defaultValue) {
+        return format.getProperty(key) instanceof Number n ? n : defaultValue;
+    }
+
+    /**
+     * Creates the encoding stream.
+     *
+     * @param targetFormat parameters are taken from its properties
+     */
+    private static AudioInputStream encode(AudioFormat targetFormat, AudioInputStream sourceStream) throws IOException {
+        AudioFormat sourceFormat = sourceStream.getFormat();
+        int channels = sourceFormat.getChannels();
+        int bitrate = property(targetFormat, "bitrate", channels * 64000).intValue();
+        float frameMs = property(targetFormat, "frameMs", 10).floatValue();
+        int epMode = property(targetFormat, "epMode", 0).intValue();
+        int hrMode = property(targetFormat, "hrMode", targetFormat.getSampleSizeInBits() == 24 ? 1 : 0).intValue();
+        Lc3PlusEncoder encoder = new Lc3PlusEncoder((int) sourceFormat.getSampleRate(), channels, bitrate, frameMs, epMode, hrMode);
+        Map<String, Object> properties = new HashMap<>(targetFormat.properties());
+        properties.put("bitrate", bitrate);
+        properties.put("frameMs", frameMs);
+        properties.put("epMode", epMode);
+        properties.put("hrMode", hrMode);
+        AudioFormat format = new AudioFormat(Lc3Encoding.LC3, sourceFormat.getSampleRate(), hrMode != 0 ? 24 : 16, channels,
+                AudioSystem.NOT_SPECIFIED, AudioSystem.NOT_SPECIFIED, false, properties);
+        return new Pcm2Lc3AudioInputStream(sourceStream, format, encoder);
+    }
+
+    /** @return the decoded length, or not specified */
+    private static long frameLength(Lc3Plus lc3Plus) throws IOException {
+        long length = lc3Plus.getDecodedLength();
+        return length < 0 ? AudioSystem.NOT_SPECIFIED : length;
+    }
+
     @Override
     public AudioInputStream getAudioInputStream(AudioFormat.Encoding targetEncoding, AudioInputStream sourceStream) {
         try {
@@ -68,11 +188,11 @@ public class Lc3FormatConversionProvider extends FormatConversionProvider {
                     AudioFormat targetFormat = formats[0];
                     if (sourceFormat.equals(targetFormat)) {
                         return sourceStream;
-                    } else if (sourceFormat.getEncoding() instanceof Lc3Encoding && targetFormat.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED)) {
+                    } else if (sourceFormat.getEncoding() instanceof Lc3Encoding && isPcm(targetFormat.getEncoding())) {
                         Lc3Plus lc3Plus = (Lc3Plus) sourceFormat.getProperty("lc3Plus");
-                        return new Lc32PcmAudioInputStream(sourceStream, targetFormat, AudioSystem.NOT_SPECIFIED, lc3Plus);
-                    } else if (sourceFormat.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED) && targetFormat.getEncoding() instanceof Lc3Encoding) {
-                        throw new IllegalArgumentException("unable to convert " + sourceFormat + " to " + targetFormat);
+                        return new Lc32PcmAudioInputStream(sourceStream, targetFormat, frameLength(lc3Plus), lc3Plus);
+                    } else if (isEncodable(sourceFormat) && targetFormat.getEncoding() instanceof Lc3Encoding) {
+                        return encode(targetFormat, sourceStream);
                     } else {
                         throw new IllegalArgumentException("unable to convert " + sourceFormat + " to " + targetFormat.toString());
                     }
@@ -96,12 +216,11 @@ public class Lc3FormatConversionProvider extends FormatConversionProvider {
                     AudioFormat sourceFormat = sourceStream.getFormat();
                     if (sourceFormat.equals(targetFormat)) {
                         return sourceStream;
-                    } else if (sourceFormat.getEncoding() instanceof Lc3Encoding &&
-                               targetFormat.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED)) {
+                    } else if (sourceFormat.getEncoding() instanceof Lc3Encoding && isPcm(targetFormat.getEncoding())) {
                         Lc3Plus lc3Plus = (Lc3Plus) sourceFormat.getProperty("lc3Plus");
-                        return new Lc32PcmAudioInputStream(sourceStream, targetFormat, AudioSystem.NOT_SPECIFIED, lc3Plus);
-                    } else if (sourceFormat.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED) && targetFormat.getEncoding() instanceof Lc3Encoding) {
-                        throw new IllegalArgumentException("unable to convert " + sourceFormat + " to " + targetFormat);
+                        return new Lc32PcmAudioInputStream(sourceStream, targetFormat, frameLength(lc3Plus), lc3Plus);
+                    } else if (isEncodable(sourceFormat) && targetFormat.getEncoding() instanceof Lc3Encoding) {
+                        return encode(targetFormat, sourceStream);
                     } else {
                         throw new IllegalArgumentException("unable to convert " + sourceFormat + " to " + targetFormat);
                     }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.sampled.lc3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import vavi.sound.lc3.Lc3PlusEncoder;
+
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_MAX_BYTES;
+
+
+/**
+ * Converts a PCM 16 or 24bits/sample little endian audio stream into LC3 frames.
+ * <p>
+ * each frame is prefixed by its size (16bit little endian) as {@link vavi.sound.lc3.Lc3Plus} reads,
+ * the file header is not included. frames are encoded when the consumer reads,
+ * only a pcm frame and an encoded frame are buffered.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class Pcm2Lc3AudioInputStream extends AudioInputStream {
+
+    /** */
+    private final Lc3EncodingInputStream encoding;
+
+    /** */
+    public Pcm2Lc3AudioInputStream(AudioInputStream in, AudioFormat audioFormat, Lc3PlusEncoder encoder) {
+        this(new Lc3EncodingInputStream(in, encoder), audioFormat);
+    }
+
+    /** */
+    private Pcm2Lc3AudioInputStream(Lc3EncodingInputStream encoding, AudioFormat audioFormat) {
+        super(encoding, audioFormat, AudioSystem.NOT_SPECIFIED);
+        this.encoding = encoding;
+    }
+
+    /** @return pcm samples per channel read from the source so far, all of them after the end */
+    long getSignalLength() {
+        return encoding.signalLength;
+    }
+
+    /** releases the encoder, the source is not closed */
+    void closeEncoder() {
+        encoding.encoder.close();
+    }
+
+    /** */
+    private static class Lc3EncodingInputStream extends InputStream {
+
+        /** pcm source */
+        private final AudioInputStream in;
+
+        /** */
+        private final Lc3PlusEncoder encoder;
+
+        /** 24bit when true */
+        private final boolean hiRes;
+
+        /** a pcm frame */
+        private final byte[] pcm;
+
+        /** size prefixed encoded frame */
+        private final byte[] frame = new byte[Short.BYTES + LC3PLUS_MAX_BYTES];
+
+        /** */
+        private int framePosition;
+
+        /** */
+        private int frameLength;
+
+        /** silent frames to encode after the source ends, they push the codec delay out */
+        private int flushFrames;
+
+        /** */
+        private boolean eof;
+
+        /** pcm samples per channel read */
+        private long signalLength;
+
+        /** for {@link #read()} */
+        private final byte[] single = new byte[1];
+
+        /** */
+        public Lc3EncodingInputStream(AudioInputStream in, Lc3PlusEncoder encoder) {
+            this.in = in;
+            this.encoder = encoder;
+            this.hiRes = in.getFormat().getSampleSizeInBits() == 24;
+            int samples = encoder.getInputSamples();
+            this.pcm = new byte[samples * encoder.getChannels() * (hiRes ? 3 : Short.BYTES)];
+            this.flushFrames = (encoder.getDelay() + samples - 1) / samples;
+        }
+
+        /** @return false when no more frame */
+        private boolean encode() throws IOException {
+            if (eof) {
+                if (flushFrames-- <= 0) {
+                    return false;
+                }
+                Arrays.fill(pcm, (byte) 0);
+            } else {
+                int l = in.readNBytes(pcm, 0, pcm.length);
+                signalLength += l / in.getFormat().getFrameSize();
+                if (l < pcm.length) {
+                    eof = true;
+                    if (l == 0) {
+                        return encode();
+                    }
+                    // the last frame is padded by silence
+                    Arrays.fill(pcm, l, pcm.length, (byte) 0);
+                }
+            }
+            int n = hiRes ? encoder.encode24(pcm, 0, frame, Short.BYTES) : encoder.encode(pcm, 0, frame, Short.BYTES);
+            frame[0] = (byte) n;
+            frame[1] = (byte) (n >> 8);
+            framePosition = 0;
+            frameLength = Short.BYTES + n;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) == 1 ? single[0] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int l = 0;
+            while (l < len) {
+                if (framePosition == frameLength && !encode()) {
+                    break;
+                }
+                int n = Math.min(len - l, frameLength - framePosition);
+                System.arraycopy(frame, framePosition, b, off + l, n);
+                framePosition += n;
+                l += n;
+            }
+            return l == 0 && len > 0 ? -1 : l;
+        }
+
+        @Override
+        public int available() {
+            return frameLength - framePosition;
+        }
+
+        @Override
+        public void close() throws IOException {
+            encoder.close();
+            in.close();
+        }
+    }
+}
+
+/* */
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.ffm;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+
+import vavi.sound.lc3.spi.DecoderEngine;
+import vavi.sound.lc3.spi.ScratchProvider;
+import vavi.util.Debug;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_SHORT;
+import static vavi.sound.lc3.jna.Lc3Library.ERROR_MESSAGES;
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_MAX_BYTES;
+
+
+/**
+ * DecoderEngine by the foreign function &amp; memory api (java 22+).
+ * <p>
+ * all native blocks are allocated from one arena and released at once by {@link #close()}.
+ * the arena is shared, not confined, because a javax.sound stream is often
+ * created and read on different threads. an engine not closed is freed by a {@link Cleaner}
+ * after it becomes unreachable.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class FfmDecoderEngine implements DecoderEngine {
+
+    /** LC3plus checks the alignment */
+    private static final long ALIGNMENT = 16;
+
+    /** frees engines not closed */
+    private static final Cleaner cleaner = Cleaner.create();
+
+    /** owns all segments below */
+    private final Arena arena = Arena.ofShared();
+    /** closes {@link #arena} once */
+    private final Cleaner.Cleanable cleanable = cleaner.register(this, arena::close);
+    /** the decoder structure */
+    private final MemorySegment decoder;
+    /** read buffer */
+    private final MemorySegment input;
+    /** direct view of {@link #input} */
+    private final ByteBuffer inputBuffer;
+    /** own scratch, null when shared by {@link Lc3Ffm#scratches} */
+    private final MemorySegment scratch;
+    /** */
+    private final int scratchSize;
+    /** pointer array */
+    private final MemorySegment output16s;
+    /** decoded samples */
+    private final MemorySegment[] output16ch;
+    /** pointer array for 24bit, allocated at the first 24bit decoding */
+    private MemorySegment output24s;
+    /** decoded 24bit samples */
+    private MemorySegment[] output24ch;
+    /** */
+    private final int sampleRate;
+    /** */
+    private final int channels;
+    /** */
+    private final int plcMode;
+    /** */
+    private final int hrMode;
+    /** */
+    private final float frameMs;
+    /** */
+    private final boolean epMode;
+    /** */
+    private final int samples;
+    /** */
+    private final int delay;
+
+    /** init decoder */
+    public FfmDecoderEngine(int sampleRate, int channels, int plcMode, int hrMode, float frameMs, boolean epMode) throws IOException {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.plcMode = plcMode;
+        this.hrMode = hrMode;
+        this.frameMs = frameMs;
+        this.epMode = epMode;
+        try {
+            int size = (int) Lc3Ffm.lc3plus_dec_get_size.invokeExact(sampleRate, channels, plcMode);
+            decoder = arena.allocate(size, ALIGNMENT);
+
+            setup();
+
+            samples = (int) Lc3Ffm.lc3plus_dec_get_output_samples.invokeExact(decoder);
+            delay = (int) Lc3Ffm.lc3plus_dec_get_delay.invokeExact(decoder);
+Debug.println(Level.FINE, "samples: " + samples + ", delay: " + delay);
+
+            scratchSize = (int) Lc3Ffm.lc3plus_dec_get_scratch_size.invokeExact(decoder);
+Debug.println(Level.FINE, "scratchSize: " + scratchSize);
+            scratch = ScratchProvider.isShared() ? null : arena.allocate(scratchSize, ALIGNMENT);
+        } catch (IOException | RuntimeException | Error e) {
+            cleanable.clean();
+            throw e;
+        } catch (Throwable t) {
+            cleanable.clean();
+            throw new IllegalStateException(t);
+        }
+
+        input = arena.allocate(LC3PLUS_MAX_BYTES, ALIGNMENT);
+        inputBuffer = input.asByteBuffer();
+
+        output16s = arena.allocate(ADDRESS, channels);
+        output16ch = new MemorySegment[channels];
+        for (int i = 0; i < channels; i++) {
+            output16ch[i] = arena.allocate(JAVA_SHORT, samples);
+            output16s.setAtIndex(ADDRESS, i, output16ch[i]);
+        }
+    }
+
+    /** (re)initializes the decoder structure, no allocation */
+    private void setup() throws Throwable {
+Debug.println(Level.FINE, "hrMode: " + hrMode);
+        int r = (int) Lc3Ffm.lc3plus_dec_init.invokeExact(decoder, sampleRate, channels, plcMode, hrMode);
+        check("lc3plus_dec_init", r);
+
+        r = (int) Lc3Ffm.lc3plus_dec_set_frame_dms.invokeExact(decoder, (int) (frameMs * 10));
+        check("lc3plus_dec_set_frame_dms", r);
+
+        r = (int) Lc3Ffm.lc3plus_dec_set_ep_enabled.invokeExact(decoder, epMode ? 1 : 0);
+        check("lc3plus_dec_set_ep_enabled", r);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        try {
+            setup();
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /** */
+    private static void check(String function, int r) throws IOException {
+        if (r != 0) {
+            throw new IOException(function + ": " + ERROR_MESSAGES[r]);
+        }
+    }
+
+    @Override
+    public int getOutputSamples() {
+        return samples;
+    }
+
+    @Override
+    public int getDelay() {
+        return delay;
+    }
+
+    @Override
+    public ByteBuffer getInputBuffer() {
+        return inputBuffer;
+    }
+
+    /** */
+    private MemorySegment scratch() {
+        return scratch != null ? scratch : Lc3Ffm.scratches.get(scratchSize);
+    }
+
+    @Override
+    public void decode16(int nBytes, int bfiExt, short[][] out, int off) throws IOException {
+        int r;
+        try {
+            r = (int) Lc3Ffm.lc3plus_dec16.invokeExact(decoder, input, nBytes, output16s, scratch(), bfiExt);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+        check("lc3plus_dec16", r);
+        for (int ch = 0; ch < channels; ch++) {
+            MemorySegment.copy(output16ch[ch], JAVA_SHORT, 0, out[ch], off, samples);
+        }
+    }
+
+    @Override
+    public void decode24(int nBytes, int bfiExt, int[][] out, int off) throws IOException {
+        if (output24s == null) {
+            output24s = arena.allocate(ADDRESS, channels);
+            output24ch = new MemorySegment[channels];
+            for (int i = 0; i < channels; i++) {
+                output24ch[i] = arena.allocate(JAVA_INT, samples);
+                output24s.setAtIndex(ADDRESS, i, output24ch[i]);
+            }
+        }
+        int r;
+        try {
+            r = (int) Lc3Ffm.lc3plus_dec24.invokeExact(decoder, input, nBytes, output24s, scratch(), bfiExt);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+        check("lc3plus_dec24", r);
+        for (int ch = 0; ch < channels; ch++) {
+            MemorySegment.copy(output24ch[ch], JAVA_INT, 0, out[ch], off, samples);
+        }
+    }
+
+    /** frees all native blocks, calling twice is harmless */
+    @Override
+    public void close() {
+        cleanable.clean();
+    }
+}
+
+/* */
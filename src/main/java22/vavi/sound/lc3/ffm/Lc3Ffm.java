@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.ffm;
+
+import java.io.File;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+
+import vavi.sound.lc3.jna.Lc3NativeLoader;
+import vavi.sound.lc3.spi.ScratchProvider;
+import vavi.util.Debug;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_DEC_MAX_SCRATCH_SIZE;
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_ENC_MAX_SCRATCH_SIZE;
+
+
+/**
+ * Downcall handles of <b>lc3</b> by the foreign function &amp; memory api.
+ * <p>
+ * the library is searched in the directory where a bundled one is extracted,
+ * "jna.library.path", "java.library.path" and then by the os loader.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+final class Lc3Ffm {
+
+    private Lc3Ffm() {
+    }
+
+    /** */
+    private static final String LIBRARY_NAME = "LC3plus";
+
+    /** */
+    private static final SymbolLookup LOOKUP = lookup();
+
+    /** */
+    private static SymbolLookup lookup() {
+        String name = System.mapLibraryName(LIBRARY_NAME);
+        Path extracted = Lc3NativeLoader.extract();
+        String paths = (extracted != null ? extracted + File.pathSeparator : "") +
+                System.getProperty("jna.library.path", "") + File.pathSeparator + System.getProperty("java.library.path", "");
+        for (String dir : paths.split(File.pathSeparator)) {
+            if (!dir.isEmpty()) {
+                Path path = Path.of(dir, name);
+                if (Files.exists(path)) {
+Debug.println(Level.FINE, "library: " + path);
+                    return SymbolLookup.libraryLookup(path, Arena.global());
+                }
+            }
+        }
+        return SymbolLookup.libraryLookup(name, Arena.global());
+    }
+
+    /** */
+    private static MethodHandle downcall(String name, FunctionDescriptor descriptor) {
+        return Linker.nativeLinker().downcallHandle(LOOKUP.find(name).orElseThrow(() -> new UnsatisfiedLinkError(name)), descriptor);
+    }
+
+    /** <code>int lc3plus_dec_get_size(int samplerate, int channels, LC3PLUS_PlcMode plc_mode)</code> */
+    static final MethodHandle lc3plus_dec_get_size = downcall("lc3plus_dec_get_size",
+            FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT, JAVA_INT));
+
+    /** <code>LC3PLUS_Error lc3plus_dec_init(LC3PLUS_Dec* decoder, int samplerate, int channels, LC3PLUS_PlcMode plc_mode, int hrmode)</code> */
+    static final MethodHandle lc3plus_dec_init = downcall("lc3plus_dec_init",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, JAVA_INT, JAVA_INT));
+
+    /** <code>LC3PLUS_Error lc3plus_dec_set_frame_dms(LC3PLUS_Dec* decoder, int frame_ms)</code> */
+    static final MethodHandle lc3plus_dec_set_frame_dms = downcall("lc3plus_dec_set_frame_dms",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT));
+
+    /** <code>LC3PLUS_Error lc3plus_dec_set_ep_enabled(LC3PLUS_Dec* decoder, int ep_enabled)</code> */
+    static final MethodHandle lc3plus_dec_set_ep_enabled = downcall("lc3plus_dec_set_ep_enabled",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT));
+
+    /** <code>int lc3plus_dec_get_output_samples(const LC3PLUS_Dec* decoder)</code> */
+    static final MethodHandle lc3plus_dec_get_output_samples = downcall("lc3plus_dec_get_output_samples",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS));
+
+    /** <code>int lc3plus_dec_get_delay(const LC3PLUS_Dec* decoder)</code> */
+    static final MethodHandle lc3plus_dec_get_delay = downcall("lc3plus_dec_get_delay",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS));
+
+    /** <code>int lc3plus_dec_get_scratch_size(const LC3PLUS_Dec* decoder)</code> */
+    static final MethodHandle lc3plus_dec_get_scratch_size = downcall("lc3plus_dec_get_scratch_size",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS));
+
+    /** <code>LC3PLUS_Error lc3plus_dec16(LC3PLUS_Dec* decoder, void* input_bytes, int num_bytes, int16_t** output_samples, void* scratch, int bfi_ext)</code> */
+    static final MethodHandle lc3plus_dec16 = downcall("lc3plus_dec16",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_INT, ADDRESS, ADDRESS, JAVA_INT));
+
+    /** <code>LC3PLUS_Error lc3plus_dec24(LC3PLUS_Dec* decoder, void* input_bytes, int num_bytes, int32_t** output_samples, void* scratch, int bfi_ext)</code> */
+    static final MethodHandle lc3plus_dec24 = downcall("lc3plus_dec24",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_INT, ADDRESS, ADDRESS, JAVA_INT));
+
+    /** scratch shared by codecs on a thread, freed by gc after the thread is gone */
+    static final ScratchProvider<MemorySegment> scratches = ScratchProvider.perThread(
+            size -> Arena.ofAuto().allocate(size, 16), MemorySegment::byteSize,
+            Math.max(LC3PLUS_DEC_MAX_SCRATCH_SIZE, LC3PLUS_ENC_MAX_SCRATCH_SIZE));
+}
+
+/* */
@@ -7,13 +7,24 @@
 package vavi.sound.lc3;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.Channels;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
+import java.util.Random;
 import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.DataLine;
 import javax.sound.sampled.Line;
@@ -21,13 +32,32 @@ import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.Mixer;
 import javax.sound.sampled.SourceDataLine;
 
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import vavi.io.LittleEndianDataInputStream;
+import vavi.sound.lc3.ffm.FfmBackend;
+import vavi.sound.lc3.jna.Lc3DirectLibrary;
+import vavi.sound.lc3.jna.Lc3Library.LC3PLUS_PlcMode;
+import vavi.sound.lc3.spi.DecoderEngine;
+import vavi.sound.lc3.spi.DecoderPool;
+import vavi.sound.lc3.spi.Lc3Backends;
+import vavi.sound.lc3.spi.ScratchProvider;
 import vavi.sound.SoundUtil;
 import vavi.util.Debug;
 import vavi.util.properties.annotation.Property;
 import vavi.util.properties.annotation.PropsEntity;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static vavi.sound.lc3.jna.Lc3Library.Holder.INSTANCE;
+import static vavi.sound.lc3.jna.Lc3Library.LC3PLUS_MAX_BYTES;
 import static vavix.util.DelayedWorker.later;
 
 
@@ -38,7 +68,7 @@ import static vavix.util.DelayedWorker.later;
  * @version 0.00 2023-02-05 nsano initial version <br>
  */
 @PropsEntity(url = "file:local.properties")
-class Test1 {
+public class Test1 {
 
     static boolean localPropertiesExists() {
         return Files.exists(Paths.get("local.properties"));
@@ -108,6 +138,799 @@ Debug.println(af);
         line.drain();
         line.close();
     }
+
+    @Test
+    @DisplayName("frame ingestion: per byte vs. bulk")
+    void test2() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(lc3file));
+        int loops = 20;
+
+        // per byte, as before
+        Memory input = new Memory(LC3PLUS_MAX_BYTES);
+        int frames = 0;
+        long t = System.nanoTime();
+        for (int l = 0; l < loops; l++) {
+            LittleEndianDataInputStream ledis = new LittleEndianDataInputStream(new ByteArrayInputStream(bytes));
+            ledis.skipBytes(ledis.readUnsignedShort() == 0xcc1c ? ledis.readUnsignedShort() - 4 : 4);
+            while (true) {
+                try {
+                    int nBytes = ledis.readUnsignedShort();
+                    for (int i = 0; i < nBytes && i < input.size(); i++) {
+                        input.setByte(i, ledis.readByte());
+                    }
+                    frames++;
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+        double perByte = frames / ((System.nanoTime() - t) / 1e9);
+
+        // bulk
+        frames = 0;
+        t = System.nanoTime();
+        for (int l = 0; l < loops; l++) {
+            try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(bytes))) {
+                while (true) {
+                    try {
+                        lc3Plus.read();
+                        frames++;
+                    } catch (EOFException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        double bulk = frames / ((System.nanoTime() - t) / 1e9);
+Debug.println(String.format("per byte: %.0f frames/sec, bulk: %.0f frames/sec, x%.1f", perByte, bulk, bulk / perByte));
+    }
+
+    @Test
+    @DisplayName("decode into caller's buffers")
+    void test3() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(lc3file));
+        try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(bytes));
+             Lc3Plus lc3Plus2 = new Lc3Plus(new ByteArrayInputStream(bytes))) {
+            int n = lc3Plus.getOutputSamples() * lc3Plus.getChannels();
+            byte[] b = new byte[n * Short.BYTES];
+            short[] s = new short[n];
+            while (true) {
+                try {
+                    int nBytes = lc3Plus.read();
+                    lc3Plus2.read();
+                    assertEquals(n, lc3Plus.decode(nBytes, b, 0));
+                    assertEquals(n, lc3Plus2.decode(nBytes, s, 0));
+                    for (int i = 0; i < n; i++) {
+                        assertEquals(s[i], (short) ((b[i * 2] & 0xff) | (b[i * 2 + 1] << 8)));
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("interleave: per sample vs. bulk")
+    void test4() throws Exception {
+        int loops = 20000;
+        for (int sampleRate : new int[] {8000, 16000, 24000, 32000, 48000, 96000}) {
+            for (int channels = 1; channels <= 2; channels++) {
+                int samples = sampleRate / 100;
+                Memory[] output16ch = new Memory[channels];
+                for (int ch = 0; ch < channels; ch++) {
+                    output16ch[ch] = new Memory((long) samples * Short.BYTES);
+                    for (int i = 0; i < samples; i++) {
+                        output16ch[ch].setShort((long) i * Short.BYTES, (short) (i * (ch + 1)));
+                    }
+                }
+
+                // per sample, as before
+                ShortBuffer sb = ShortBuffer.allocate(samples * channels);
+                long t = System.nanoTime();
+                for (int l = 0; l < loops; l++) {
+                    for (int ch = 0; ch < channels; ch++) {
+                        for (int i = 0; i < samples; i++) {
+                            sb.put(i * channels + ch, output16ch[ch].getShort((long) i * Short.BYTES));
+                        }
+                    }
+                }
+                long perSample = System.nanoTime() - t;
+
+                // bulk
+                short[][] planes = new short[channels][samples];
+                short[] out = new short[samples * channels];
+                t = System.nanoTime();
+                for (int l = 0; l < loops; l++) {
+                    for (int ch = 0; ch < channels; ch++) {
+                        output16ch[ch].read(0, planes[ch], 0, samples);
+                    }
+                    Lc3Plus.interleave16(planes, channels, samples, out, 0);
+                }
+                long bulk = System.nanoTime() - t;
+
+                assertArrayEquals(sb.array(), out);
+Debug.println(String.format("%5d Hz, %d ch: per sample: %6.2f us/frame, bulk: %6.2f us/frame, x%.1f",
+        sampleRate, channels, perSample / 1e3 / loops, bulk / 1e3 / loops, (double) perSample / bulk));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("24bit decoding")
+    void test5() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(lc3file));
+        try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(bytes));
+             Lc3Plus lc3Plus2 = new Lc3Plus(new ByteArrayInputStream(bytes))) {
+            int n = lc3Plus.getOutputSamples() * lc3Plus.getChannels();
+            short[] s = new short[n];
+            int[] i24 = new int[n];
+            while (true) {
+                try {
+                    int nBytes = lc3Plus.read();
+                    lc3Plus2.read();
+                    lc3Plus.decode(nBytes, s, 0);
+                    assertEquals(n, lc3Plus2.decode24(nBytes, i24, 0));
+                    for (int i = 0; i < n; i++) {
+                        assertTrue(Math.abs((i24[i] >> 8) - s[i]) <= 1);
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("lc3plus_dec16: interface mapping vs. direct mapping")
+    @SuppressWarnings("deprecation")
+    void test6() throws Exception {
+        LittleEndianDataInputStream ledis = new LittleEndianDataInputStream(new ByteArrayInputStream(Files.readAllBytes(Paths.get(lc3file))));
+        int sampleRate, channels;
+        float frameMs = 10;
+        int magic = ledis.readUnsignedShort();
+        if (magic == 0xcc1c) {
+            int v = ledis.readUnsignedShort();
+            sampleRate = ledis.readUnsignedShort() * 100;
+            ledis.readUnsignedShort();
+            channels = ledis.readUnsignedShort();
+            frameMs = ledis.readUnsignedShort() / 100f;
+            ledis.skipBytes(v - 12);
+        } else {
+            sampleRate = magic * 100;
+            ledis.readUnsignedShort();
+            channels = ledis.readUnsignedShort();
+        }
+        Memory input = new Memory(LC3PLUS_MAX_BYTES);
+        int nBytes = ledis.readUnsignedShort();
+        byte[] frame = new byte[nBytes];
+        ledis.readFully(frame);
+        input.write(0, frame, 0, nBytes);
+
+        Memory decoder = new Memory(INSTANCE.lc3plus_dec_get_size(sampleRate, channels, LC3PLUS_PlcMode.LC3PLUS_PLC_ADVANCED));
+        assertEquals(0, INSTANCE.lc3plus_dec_init(decoder, sampleRate, channels, LC3PLUS_PlcMode.LC3PLUS_PLC_ADVANCED, 0));
+        assertEquals(0, INSTANCE.lc3plus_dec_set_frame_dms(decoder, (int) (frameMs * 10)));
+        int samples = INSTANCE.lc3plus_dec_get_output_samples(decoder);
+        Memory scratch = new Memory(INSTANCE.lc3plus_dec_get_scratch_size(decoder));
+        Memory outputs = new Memory((long) channels * Native.POINTER_SIZE);
+        // the native side only has the pointers, these must be reachable while decoding
+        Memory[] output16ch = new Memory[channels];
+        for (int i = 0; i < channels; i++) {
+            output16ch[i] = new Memory((long) samples * Short.BYTES);
+            outputs.setPointer((long) i * Native.POINTER_SIZE, output16ch[i]);
+        }
+
+        int loops = 100000;
+        for (int w = 0; w < 2; w++) { // 1st round is warming up
+            long t = System.nanoTime();
+            for (int l = 0; l < loops; l++) {
+                INSTANCE.lc3plus_dec16(decoder, input, nBytes, outputs, scratch, 0);
+            }
+            long proxy = System.nanoTime() - t;
+            t = System.nanoTime();
+            for (int l = 0; l < loops; l++) {
+                Lc3DirectLibrary.lc3plus_dec16(decoder, input, nBytes, outputs, scratch, 0);
+            }
+            long direct = System.nanoTime() - t;
+Debug.println(String.format("interface: %.0f ns/call, direct: %.0f ns/call, saving: %.0f ns/call", proxy / (double) loops, direct / (double) loops, (proxy - direct) / (double) loops));
+        }
+        Reference.reachabilityFence(output16ch);
+    }
+
+    @Test
+    @DisplayName("ffm backend makes the same output as jna")
+    void test7() throws Exception {
+        assumeTrue(new FfmBackend().isAvailable(), "ffm backend needs java 22+");
+
+        byte[] bytes = Files.readAllBytes(Paths.get(lc3file));
+        Lc3Plus jna, ffm;
+        int nBytes;
+        try {
+            System.setProperty(Lc3Backends.BACKEND_PROPERTY, "jna");
+            jna = new Lc3Plus(new ByteArrayInputStream(bytes));
+            nBytes = jna.read(); // the decoder is created lazily
+            System.setProperty(Lc3Backends.BACKEND_PROPERTY, "ffm");
+            ffm = new Lc3Plus(new ByteArrayInputStream(bytes));
+            assertEquals(nBytes, ffm.read());
+        } finally {
+            System.clearProperty(Lc3Backends.BACKEND_PROPERTY);
+        }
+        try (jna; ffm) {
+            int n = jna.getOutputSamples() * jna.getChannels();
+            short[] expected = new short[n];
+            short[] actual = new short[n];
+            int frames = 0;
+            while (true) {
+                jna.decode(nBytes, expected, 0);
+                ffm.decode(nBytes, actual, 0);
+                assertArrayEquals(expected, actual, "frame " + frames);
+                frames++;
+                try {
+                    nBytes = jna.read();
+                } catch (EOFException e) {
+                    break;
+                }
+                assertEquals(nBytes, ffm.read());
+            }
+Debug.println("frames: " + frames);
+        }
+    }
+
+    /** @return VmRSS in kB */
+    static long rss() throws Exception {
+        return Files.readAllLines(Paths.get("/proc/self/status")).stream()
+                .filter(l -> l.startsWith("VmRSS:"))
+                .mapToLong(l -> Long.parseLong(l.replaceAll("\\D", "")))
+                .findFirst().orElseThrow();
+    }
+
+    @Test
+    @DisplayName("open/close cycles do not grow the native heap")
+    void test8() throws Exception {
+        assumeTrue(Files.exists(Paths.get("/proc/self/status")), "needs procfs");
+
+        byte[] bytes = Files.readAllBytes(Paths.get(lc3file));
+        Lc3FrameSource source = Lc3FrameSource.of(bytes);
+        Lc3Plus header = new Lc3Plus(source);
+        // after the header
+        ByteBuffer frame = source.duplicate().next();
+        int nBytes = frame.remaining();
+        short[][] planes = new short[header.getChannels()][header.getFrameSamples()];
+        int cycles = 100000;
+        long base = 0;
+        for (int c = 0; c < cycles; c++) {
+            if (c == cycles / 10) { // after warming up
+                System.gc();
+                base = rss();
+            }
+            // not through the pool, every cycle allocates and frees the native memory
+            try (DecoderEngine engine = Lc3Backends.createDecoder((int) header.getSampleRate(), header.getChannels(),
+                    LC3PLUS_PlcMode.LC3PLUS_PLC_ADVANCED, header.getHrMode(), header.getFrameMs(), header.isEpMode())) {
+                engine.getInputBuffer().clear();
+                engine.getInputBuffer().put(frame.duplicate());
+                engine.decode16(nBytes, 0, planes, 0);
+            }
+        }
+        header.close();
+        System.gc();
+        long last = rss();
+Debug.println(String.format("rss: %d kB -> %d kB after %d cycles", base, last, cycles));
+        assertTrue(last - base < 32 * 1024, "rss grows " + (last - base) + " kB");
+    }
+
+    /** @return rss growth in kB while n decoders are open and have decoded a frame */
+    static long rssOf(byte[] bytes, int n, boolean shared) throws Exception {
+        System.setProperty(ScratchProvider.SHARED_PROPERTY, String.valueOf(shared));
+        DecoderPool.getDefault().clear();
+        Lc3Plus[] lc3Pluses = new Lc3Plus[n];
+        try {
+            System.gc();
+            long base = rss();
+            short[] out = null;
+            for (int i = 0; i < n; i++) {
+                lc3Pluses[i] = new Lc3Plus(new ByteArrayInputStream(bytes));
+                if (out == null) {
+                    out = new short[lc3Pluses[i].getOutputSamples() * lc3Pluses[i].getChannels()];
+                }
+                lc3Pluses[i].decode(lc3Pluses[i].read(), out, 0);
+            }
+            return rss() - base;
+        } finally {
+            for (Lc3Plus lc3Plus : lc3Pluses) {
+                if (lc3Plus != null) {
+                    lc3Plus.close();
+                }
+            }
+            System.clearProperty(ScratchProvider.SHARED_PROPERTY);
+        }
+    }
+
+    @Test
+    @DisplayName("scratch per thread vs. per instance")
+    void test9() throws Exception {
+        assumeTrue(Files.exists(Paths.get("/proc/self/status")), "needs procfs");
+
+        byte[] bytes = Files.readAllBytes(Paths.get(lc3file));
+        int n = Integer.getInteger("vavi.test.instances", 10000);
+        int scratchSize;
+        try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(bytes))) {
+            Memory decoder = new Memory(INSTANCE.lc3plus_dec_get_size((int) lc3Plus.getSampleRate(), lc3Plus.getChannels(), LC3PLUS_PlcMode.LC3PLUS_PLC_ADVANCED));
+            assertEquals(0, INSTANCE.lc3plus_dec_init(decoder, (int) lc3Plus.getSampleRate(), lc3Plus.getChannels(), LC3PLUS_PlcMode.LC3PLUS_PLC_ADVANCED, lc3Plus.getHrMode()));
+            assertEquals(0, INSTANCE.lc3plus_dec_set_frame_dms(decoder, (int) (lc3Plus.getFrameMs() * 10)));
+            scratchSize = INSTANCE.lc3plus_dec_get_scratch_size(decoder);
+        }
+        // each mode in its own jvm, so neither one gets the pages freed by the other
+        long own = forkRssOf(lc3file, n, false);
+        long shared = forkRssOf(lc3file, n, true);
+Debug.println(String.format("%d decoders: own scratch: %d kB, shared scratch: %d kB, saving: %d kB (%.1f kB/decoder), by the scratch size: %d kB (%d bytes/decoder)",
+        n, own, shared, own - shared, (own - shared) / (double) n, (long) scratchSize * (n - 1) / 1024, scratchSize));
+        assertTrue(shared < own);
+    }
+
+    /** runs {@link RssOf} in a new jvm with the same class path and library path */
+    static long forkRssOf(String file, int n, boolean shared) throws Exception {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java,
+                "-cp", System.getProperty("java.class.path"),
+                "-Djna.library.path=" + System.getProperty("jna.library.path", ""),
+                RssOf.class.getName(), file, String.valueOf(n), String.valueOf(shared))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        String out = new String(process.getInputStream().readAllBytes()).trim();
+        assertEquals(0, process.waitFor(), out);
+        String[] lines = out.split("\\R");
+        return Long.parseLong(lines[lines.length - 1]);
+    }
+
+    /** prints {@link #rssOf(byte[], int, boolean)} of a fresh jvm */
+    static class RssOf {
+        public static void main(String[] args) throws Exception {
+            byte[] bytes = Files.readAllBytes(Paths.get(args[0]));
+            int n = Integer.parseInt(args[1]);
+            boolean shared = Boolean.parseBoolean(args[2]);
+            rssOf(bytes, 100, shared); // warming up
+            System.out.println(rssOf(bytes, n, shared));
+        }
+    }
+
+    @Test
+    @DisplayName("batch decoding: frames per call, by the frame duration")
+    void test10() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(lc3file));
+        int sampleRate, channels, bitrate;
+        // 2.5 and 5 ms streams are encoded from the pcm of the file
+        short[] pcm;
+        try (Lc3Plus lc3Plus = new Lc3Plus(Lc3FrameSource.of(bytes))) {
+            sampleRate = (int) lc3Plus.getSampleRate();
+            channels = lc3Plus.getChannels();
+            bitrate = lc3Plus.getBitrate();
+            pcm = decodeAll(lc3Plus);
+        }
+        for (float frameMs : new float[] {2.5f, 5, 10}) {
+            byte[] lc3;
+            if (frameMs == 10) {
+                lc3 = bytes;
+            } else {
+                try (Lc3PlusEncoder encoder = new Lc3PlusEncoder(sampleRate, channels, Math.max(bitrate, channels * 96000), frameMs, 0, 0)) {
+                    lc3 = encode(encoder, pcm);
+                }
+            }
+            batchDecoding(lc3, frameMs);
+        }
+    }
+
+    /** decodes by Lc3Plus#decodeFrames and the conversion stream at some batch sizes */
+    static void batchDecoding(byte[] bytes, float frameMs) throws Exception {
+        byte[] expected;
+        int frameBytes;
+        // the conversion stream drops the codec delay and ends at the signal length
+        byte[] aligned;
+        try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(bytes))) {
+            assertEquals(frameMs, lc3Plus.getFrameMs());
+            frameBytes = lc3Plus.getOutputSamples() * lc3Plus.getChannels() * Short.BYTES;
+            expected = toBytes(decodeAll(lc3Plus));
+            int sampleBytes = lc3Plus.getChannels() * Short.BYTES;
+            int from = lc3Plus.getDelay() * sampleBytes;
+            aligned = Arrays.copyOfRange(expected, from, (int) Math.min(expected.length, from + lc3Plus.getSignalLength() * sampleBytes));
+        }
+
+        int loops = 5;
+        for (int batch : new int[] {1, 2, 4, 8, 16, 32}) {
+            byte[] out = new byte[expected.length];
+            int frames = 0;
+            long t = System.nanoTime();
+            for (int l = 0; l < loops; l++) {
+                try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(bytes))) {
+                    int p = 0, n;
+                    while ((n = lc3Plus.decodeFrames(batch, out, p)) > 0) {
+                        p += n * frameBytes;
+                        frames += n;
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - t;
+            assertArrayEquals(expected, out);
+Debug.println(String.format("%3.1f ms, batch %2d: %6.2f us/frame", frameMs, batch, elapsed / 1e3 / frames));
+        }
+
+        // through the conversion stream, batches follow the read size
+        for (int batch : new int[] {1, 2, 4, 8, 16, 32}) {
+            AudioInputStream ais = AudioSystem.getAudioInputStream(new BufferedInputStream(new ByteArrayInputStream(bytes)));
+            AudioFormat af = new AudioFormat(ais.getFormat().getSampleRate(), 16, ais.getFormat().getChannels(), true, false);
+            byte[] out = new byte[expected.length];
+            byte[] buf = new byte[batch * frameBytes];
+            long t = System.nanoTime();
+            try (AudioInputStream pcm = AudioSystem.getAudioInputStream(af, ais)) {
+                int p = 0, n;
+                while ((n = pcm.read(buf)) > 0) {
+                    System.arraycopy(buf, 0, out, p, n);
+                    p += n;
+                }
+                assertEquals(aligned.length, p);
+            }
+            long elapsed = System.nanoTime() - t;
+            assertArrayEquals(aligned, Arrays.copyOf(out, aligned.length));
+Debug.println(String.format("%3.1f ms, stream, read %2d frames: %6.2f us/frame", frameMs, batch, elapsed / 1e3 / (aligned.length / frameBytes)));
+        }
+    }
+
+    /** bytes of the header {@link #encode(Lc3PlusEncoder, short[])} writes */
+    static final int HEADER_LENGTH = 18;
+
+    /**
+     * @return a header (0xcc1c, 18 bytes, the signal length is of the pcm) and length prefixed frames,
+     *         the last frame is padded and silent frames for the codec delay follow, as the conversion stream does
+     */
+    static byte[] encode(Lc3PlusEncoder encoder, short[] pcm) throws Exception {
+        int channels = encoder.getChannels();
+        int samples = encoder.getInputSamples();
+        int n = samples * channels;
+        int frames = (pcm.length + n - 1) / n + (encoder.getDelay() + samples - 1) / samples;
+        ByteBuffer bb = ByteBuffer.allocate(HEADER_LENGTH + frames * (2 + LC3PLUS_MAX_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putShort((short) 0xcc1c);
+        bb.putShort((short) HEADER_LENGTH);
+        bb.putShort((short) (encoder.getSampleRate() / 100));
+        bb.putShort((short) (encoder.getBitrate() / 100));
+        bb.putShort((short) channels);
+        bb.putShort((short) Math.round(encoder.getFrameMs() * 100));
+        bb.putShort((short) encoder.getEpMode());
+        bb.putInt(pcm.length / channels);
+        short[] padded = Arrays.copyOf(pcm, frames * n);
+        byte[] frame = new byte[LC3PLUS_MAX_BYTES];
+        for (int i = 0; i < frames; i++) {
+            int nBytes = encoder.encode(padded, i * n, frame, 0);
+            bb.putShort((short) nBytes);
+            bb.put(frame, 0, nBytes);
+        }
+        return Arrays.copyOf(bb.array(), bb.position());
+    }
+
+    @Test
+    @DisplayName("encode then decode a sine")
+    void test11() throws Exception {
+        int sampleRate = 48000;
+        int channels = 2;
+        short[] pcm = new short[sampleRate * channels];
+        for (int i = 0; i < pcm.length / channels; i++) {
+            short s = (short) (Math.sin(2 * Math.PI * 1000 * i / sampleRate) * 8000);
+            pcm[i * channels] = s;
+            pcm[i * channels + 1] = (short) -s;
+        }
+
+        byte[] lc3;
+        int delay;
+        try (Lc3PlusEncoder encoder = new Lc3PlusEncoder(sampleRate, channels, 128000)) {
+            delay = encoder.getDelay();
+            long t = System.nanoTime();
+            lc3 = encode(encoder, pcm);
+Debug.println(String.format("delay: %d samples, real bitrate: %d, %d bytes, %.1f ms", delay, encoder.getRealBitrate(), lc3.length, (System.nanoTime() - t) / 1e6));
+        }
+
+        short[] decoded;
+        try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(lc3))) {
+            decoded = decodeAll(lc3Plus);
+        }
+
+        // decoded lags the input by about the codec delay
+        double snr = Double.NEGATIVE_INFINITY;
+        int lag = 0;
+        for (int l = 0; l <= delay * 2; l++) {
+            double signal = 0, noise = 0;
+            for (int i = 0; i < pcm.length && i + l * channels < decoded.length; i++) {
+                double d = decoded[i + l * channels] - pcm[i];
+                signal += pcm[i] * pcm[i];
+                noise += d * d;
+            }
+            double r = 10 * Math.log10(signal / noise);
+            if (r > snr) {
+                snr = r;
+                lag = l;
+            }
+        }
+Debug.println(String.format("snr: %.1f dB at lag %d", snr, lag));
+        assertTrue(snr > 20);
+    }
+
+    /** decodes all frames into interleaved pcm, tests of other packages use this too */
+    public static short[] decodeAll(Lc3Plus lc3Plus) throws Exception {
+        int n = lc3Plus.getOutputSamples() * lc3Plus.getChannels();
+        short[] out = new short[n * 256];
+        int p = 0, frames;
+        while ((frames = lc3Plus.decodeFrames(16, ShortBuffer.wrap(out, p, out.length - p))) > 0) {
+            p += frames * n;
+            if (out.length - p < n * 16) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+        }
+        return Arrays.copyOf(out, p);
+    }
+
+    /** @return little endian bytes of the pcm */
+    static byte[] toBytes(short[] pcm) {
+        byte[] bytes = new byte[pcm.length * Short.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(pcm);
+        return bytes;
+    }
+
+    @Test
+    @DisplayName("parallel encoding vs sequential")
+    void test12() throws Exception {
+        int sampleRate = 48000;
+        int channels = 2;
+        int seconds = Integer.parseInt(System.getProperty("vavi.test.seconds", "30"));
+        short[] pcm = new short[sampleRate * channels * seconds];
+        Random random = new Random(1);
+        for (int i = 0; i < pcm.length / channels; i++) {
+            double t = (double) i / sampleRate;
+            double f = 200 + 4000 * (t % 5) / 5; // a sweep, restarts every 5 seconds
+            short s = (short) (Math.sin(2 * Math.PI * f * t) * 6000 + random.nextGaussian() * 500);
+            pcm[i * channels] = s;
+            pcm[i * channels + 1] = (short) (s / 2);
+        }
+
+        byte[] sequential;
+        int frames;
+        long t = System.nanoTime();
+        try (Lc3PlusEncoder encoder = new Lc3PlusEncoder(sampleRate, channels, 128000)) {
+            sequential = encode(encoder, pcm);
+            int samples = encoder.getInputSamples();
+            frames = pcm.length / channels / samples + (encoder.getDelay() + samples - 1) / samples;
+        }
+        long ts = System.nanoTime() - t;
+Debug.println(String.format("sequential: %.1f ms", ts / 1e6));
+        short[] expected;
+        try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(sequential))) {
+            expected = decodeAll(lc3Plus);
+        }
+
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            Lc3PlusParallelEncoder parallelEncoder = new Lc3PlusParallelEncoder(sampleRate, channels, 128000, 10, 0, 0);
+            parallelEncoder.setThreads(threads);
+            parallelEncoder.setChunkFrames(200);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            baos.write(Arrays.copyOf(sequential, HEADER_LENGTH)); // the same header
+            t = System.nanoTime();
+            int n = parallelEncoder.encode(ShortBuffer.wrap(pcm), Channels.newChannel(baos));
+            long tp = System.nanoTime() - t;
+            byte[] parallel = baos.toByteArray();
+
+            // frames at the chunk boundaries may differ a bit by the long term states
+            short[] actual;
+            try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(parallel))) {
+                actual = decodeAll(lc3Plus);
+            }
+            double signal = 0, noise = 0;
+            for (int i = 0; i < expected.length; i++) {
+                double d = actual[i] - expected[i];
+                signal += (double) expected[i] * expected[i];
+                noise += d * d;
+            }
+            double snr = noise == 0 ? Double.POSITIVE_INFINITY : 10 * Math.log10(signal / noise);
+Debug.println(String.format("threads: %d, %.1f ms, speedup: %.2f, identical: %s, snr vs sequential: %.1f dB",
+        threads, tp / 1e6, (double) ts / tp, Arrays.equals(sequential, parallel), snr));
+            // the same frames including the flush for the codec delay, of the constant size
+            assertEquals(frames, n);
+            assertEquals(sequential.length, parallel.length);
+            assertTrue(snr > 40);
+        }
+    }
+
+    @Test
+    @DisplayName("parallel decoding vs sequential")
+    void test13() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(lc3file));
+
+        int frameBytes;
+        byte[] expected;
+        long t = System.nanoTime();
+        try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(bytes))) {
+            frameBytes = lc3Plus.getOutputSamples() * lc3Plus.getChannels() * Short.BYTES;
+            expected = toBytes(decodeAll(lc3Plus));
+        }
+        long ts = System.nanoTime() - t;
+Debug.println(String.format("sequential: %d frames, %.1f ms", expected.length / frameBytes, ts / 1e6));
+
+        int segmentFrames = 200;
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int preroll : new int[] {0, 1, 2, 4, 8}) {
+            // the speedup only by the default pre-roll
+            for (int threads = preroll == 4 ? 1 : processors; threads <= processors; threads *= 2) {
+                Lc3PlusParallelDecoder decoder = new Lc3PlusParallelDecoder(ByteBuffer.wrap(bytes));
+                decoder.setThreads(threads);
+                decoder.setSegmentFrames(segmentFrames);
+                decoder.setPrerollFrames(preroll);
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                t = System.nanoTime();
+                decoder.decode(Channels.newChannel(baos));
+                long tp = System.nanoTime() - t;
+                byte[] actual = baos.toByteArray();
+                assertEquals(expected.length, actual.length);
+
+                // differences are at the seams only
+                ShortBuffer e = ByteBuffer.wrap(expected).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+                ShortBuffer a = ByteBuffer.wrap(actual).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+                int segmentSamples = segmentFrames * frameBytes / Short.BYTES;
+                int maxDiff = 0, diffs = 0, maxDiffAway = 0;
+                double signal = 0, noise = 0;
+                for (int i = 0; i < e.limit(); i++) {
+                    int d = Math.abs(a.get(i) - e.get(i));
+                    if (d != 0) {
+                        diffs++;
+                        if (i % segmentSamples < segmentSamples / 2) {
+                            maxDiff = Math.max(maxDiff, d);
+                        } else {
+                            maxDiffAway = Math.max(maxDiffAway, d);
+                        }
+                    }
+                    signal += (double) e.get(i) * e.get(i);
+                    noise += (double) d * d;
+                }
+                double snr = noise == 0 ? Double.POSITIVE_INFINITY : 10 * Math.log10(signal / noise);
+Debug.println(String.format("preroll: %d, threads: %d, %.1f ms, speedup: %.2f, diff samples: %d, max diff after seams: %d, elsewhere: %d, snr vs sequential: %.1f dB",
+        preroll, threads, tp / 1e6, (double) ts / tp, diffs, maxDiff, maxDiffAway, snr));
+                if (preroll >= 4) {
+                    assertTrue(snr > 40);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("seek by the frame index")
+    void test14(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("test.lc3");
+        Files.copy(Paths.get(lc3file), file);
+
+        long t = System.nanoTime();
+        Lc3FrameIndex index = Lc3FrameIndex.of(file);
+Debug.println(String.format("scan: %d frames, %.1f ms", index.getFrames(), (System.nanoTime() - t) / 1e6));
+        Path sidecar = Lc3FrameIndex.sidecar(file);
+        assertTrue(Files.exists(sidecar));
+        t = System.nanoTime();
+        Lc3FrameIndex loaded = Lc3FrameIndex.of(file);
+Debug.println(String.format("sidecar: %d bytes, %.1f ms", Files.size(sidecar), (System.nanoTime() - t) / 1e6));
+        assertEquals(index.getFrames(), loaded.getFrames());
+        assertEquals(index.offset(index.getFrames()), loaded.offset(loaded.getFrames()));
+        assertEquals(Files.size(file), index.offset(index.getFrames()));
+
+        // sequential reference
+        byte[] expected;
+        int frameBytes;
+        try (Lc3Plus lc3Plus = new Lc3Plus(new BufferedInputStream(Files.newInputStream(file)))) {
+            frameBytes = lc3Plus.getOutputSamples() * lc3Plus.getChannels() * Short.BYTES;
+            expected = new byte[(index.getFrames() + 16) * frameBytes];
+            int frames = 0, n;
+            while ((n = lc3Plus.decodeFrames(16, expected, frames * frameBytes)) > 0) {
+                frames += n;
+            }
+            assertEquals(index.getFrames(), frames);
+        }
+
+        Random random = new Random(1);
+        byte[] actual = new byte[frameBytes];
+        long total = 0;
+        int seeks = 100;
+        for (int i = 0; i < seeks; i++) {
+            int frame = random.nextInt(index.getFrames());
+            t = System.nanoTime();
+            try (Lc3Plus lc3Plus = index.open(file, frame, 4)) {
+                total += System.nanoTime() - t;
+                assertEquals(1, lc3Plus.decodeFrames(1, actual, 0));
+            }
+            if (frame >= 4) {
+                double signal = 0, noise = 0;
+                for (int j = 0; j < frameBytes; j += 2) {
+                    int e = (short) ((expected[frame * frameBytes + j] & 0xff) | (expected[frame * frameBytes + j + 1] << 8));
+                    int a = (short) ((actual[j] & 0xff) | (actual[j + 1] << 8));
+                    signal += (double) e * e;
+                    noise += (double) (a - e) * (a - e);
+                }
+                assertTrue(noise == 0 || signal / noise > 1000, "frame " + frame);
+            }
+        }
+Debug.println(String.format("seek with 4 frames pre-roll: %.3f ms average", total / 1e6 / seeks));
+
+        // a stale sidecar is made again
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 10000));
+        assertEquals(index.getFrames(), Lc3FrameIndex.of(file).getFrames());
+    }
+
+    @Test
+    @DisplayName("frame sources, mapped by segments and in memory")
+    void test15() throws Exception {
+        Path file = Paths.get(lc3file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        long t = System.nanoTime();
+        short[] expected;
+        try (Lc3Plus lc3Plus = new Lc3Plus(new BufferedInputStream(Files.newInputStream(file)))) {
+            expected = decodeAll(lc3Plus);
+        }
+Debug.println(String.format("stream: %.1f ms", (System.nanoTime() - t) / 1e6));
+
+        t = System.nanoTime();
+        try (Lc3Plus lc3Plus = new Lc3Plus(Lc3FrameSource.of(bytes))) {
+            assertArrayEquals(expected, decodeAll(lc3Plus));
+        }
+Debug.println(String.format("byte[]: %.1f ms", (System.nanoTime() - t) / 1e6));
+
+        t = System.nanoTime();
+        try (Lc3Plus lc3Plus = new Lc3Plus(Lc3FrameSource.map(file))) {
+            assertArrayEquals(expected, decodeAll(lc3Plus));
+        }
+Debug.println(String.format("mapped: %.1f ms", (System.nanoTime() - t) / 1e6));
+
+        // small segments, as over 2 GB, frames and the stream view cross the segments
+        try (Lc3FrameSource source = Lc3FrameSource.map(file, 4096)) {
+            assertArrayEquals(bytes, source.duplicate().inputStream().readAllBytes());
+            try (Lc3Plus lc3Plus = new Lc3Plus(source)) {
+                assertArrayEquals(expected, decodeAll(lc3Plus));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("planar decode vs byte decode")
+    void test16() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(lc3file));
+        try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(bytes));
+             Lc3Plus lc3Plus2 = new Lc3Plus(new ByteArrayInputStream(bytes))) {
+            int channels = lc3Plus.getChannels();
+            int samples = lc3Plus.getOutputSamples();
+            int n = samples * channels;
+            byte[] b = new byte[n * Short.BYTES];
+            short[] s = new short[n];
+            short[][] p = new short[channels][samples];
+            while (true) {
+                try {
+                    int nBytes = lc3Plus.read();
+                    lc3Plus2.read();
+                    assertEquals(n, lc3Plus.decode(nBytes, b, 0));
+                    assertEquals(samples, lc3Plus2.decodePlanar(nBytes, p));
+                    Lc3Plus.interleave16(p, channels, samples, s, 0);
+                    for (int i = 0; i < n; i++) {
+                        assertEquals(s[i], (short) ((b[i * 2] & 0xff) | (b[i * 2 + 1] << 8)));
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("encoder after close")
+    void test17() throws Exception {
+        Lc3PlusEncoder encoder = new Lc3PlusEncoder(48000, 2, 128000);
+        short[] pcm = new short[encoder.getInputSamples() * 2];
+        byte[] out = new byte[LC3PLUS_MAX_BYTES];
+        encoder.encode(pcm, 0, out, 0);
+        encoder.close();
+        IOException e = assertThrows(IOException.class, () -> encoder.encode(pcm, 0, out, 0));
+        assertEquals("closed", e.getMessage());
+        assertThrows(IOException.class, () -> encoder.setBitrate(96000));
+        encoder.close();
+    }
 }
 
 /* */
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.spi;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import vavi.sound.lc3.Lc3Plus;
+import vavi.sound.lc3.Test1;
+import vavi.util.Debug;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+
+/**
+ * DecoderPoolTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class DecoderPoolTest {
+
+    static final String lc3file = "src/test/resources/test.lc3";
+
+    static final DecoderPool.Key key = DecoderPool.Key.of(48000, 2, 1, 0, 10, false);
+
+    @BeforeEach
+    void setup() {
+        assumeTrue(!Lc3Backends.candidates().isEmpty(), "needs a backend");
+    }
+
+    @Test
+    void test1() throws Exception {
+        DecoderPool pool = new DecoderPool(1, 60_000);
+        DecoderEngine engine = pool.borrow(key);
+        pool.release(key, engine);
+        assertEquals(1, pool.size());
+        assertSame(engine, pool.borrow(key));
+        assertEquals(0, pool.size());
+
+        // bounded
+        DecoderEngine engine2 = pool.borrow(key);
+        assertNotSame(engine, engine2);
+        pool.release(key, engine);
+        pool.release(key, engine2);
+        assertEquals(1, pool.size());
+        pool.clear();
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    void test2() throws Exception {
+        DecoderPool pool = new DecoderPool(4, 0);
+        pool.release(key, pool.borrow(key));
+        pool.borrow(DecoderPool.Key.of(16000, 1, 1, 0, 10, false)).close();
+        // idle ones are evicted at the next access
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    @DisplayName("a reused decoder makes the same output as a new one")
+    void test3() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(lc3file));
+        DecoderPool.getDefault().clear();
+        short[] expected;
+        try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(bytes))) {
+            expected = Test1.decodeAll(lc3Plus);
+        }
+        assumeTrue(DecoderPool.getDefault().size() > 0, "pooling is disabled");
+        short[] actual;
+        try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(bytes))) {
+            actual = Test1.decodeAll(lc3Plus);
+        }
+        assertArrayEquals(expected, actual);
+
+        int loops = 1000;
+        long t = System.nanoTime();
+        for (int i = 0; i < loops; i++) {
+            DecoderPool.getDefault().release(key, DecoderPool.getDefault().borrow(key));
+        }
+        long pooled = System.nanoTime() - t;
+        t = System.nanoTime();
+        for (int i = 0; i < loops; i++) {
+            Lc3Backends.createDecoder(48000, 2, 1, 0, 10, false).close();
+        }
+        long created = System.nanoTime() - t;
+Debug.println(String.format("pooled: %.1f us, created: %.1f us", pooled / 1e3 / loops, created / 1e3 / loops));
+    }
+}
+
+/* */
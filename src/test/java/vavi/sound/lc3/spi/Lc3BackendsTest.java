@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.lc3.spi;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import vavi.sound.lc3.Lc3Plus;
+import vavi.sound.lc3.Test1;
+import vavi.util.Debug;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+
+/**
+ * Lc3BackendsTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class Lc3BackendsTest {
+
+    static final String lc3file = "src/test/resources/test.lc3";
+
+    @AfterEach
+    void teardown() {
+        System.clearProperty(Lc3Backends.BACKEND_PROPERTY);
+    }
+
+    @Test
+    void testX() throws Exception {
+        List<String> names = ServiceLoader.load(Lc3Backend.class).stream().map(p -> p.get().getName()).toList();
+Debug.println("backends: " + names);
+        assertTrue(names.contains("jna"));
+        assertTrue(names.contains("ffm"));
+    }
+
+    @Test
+    void test1() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(lc3file));
+        short[] expected = null;
+        String reference = null;
+        for (Lc3Backend backend : ServiceLoader.load(Lc3Backend.class)) {
+            System.setProperty(Lc3Backends.BACKEND_PROPERTY, backend.getName());
+            List<Lc3Backend> candidates = Lc3Backends.candidates();
+Debug.println(backend.getName() + ": " + candidates.stream().map(Lc3Backend::getName).toList());
+            if (backend.isAvailable()) {
+                // forced one comes first
+                assertEquals(backend.getName(), candidates.get(0).getName());
+                // and decodes the same pcm as the others, the pool is keyed by the preferred backend
+                short[] actual;
+                try (Lc3Plus lc3Plus = new Lc3Plus(new ByteArrayInputStream(bytes))) {
+                    actual = Test1.decodeAll(lc3Plus);
+                }
+                if (expected == null) {
+                    expected = actual;
+                    reference = backend.getName();
+                } else {
+                    assertArrayEquals(expected, actual, backend.getName() + " vs " + reference);
+                }
+            } else {
+                // falls back to others
+                assertFalse(candidates.stream().anyMatch(b -> b.getName().equals(backend.getName())));
+            }
+        }
+    }
+
+    @Test
+    void test2() throws Exception {
+        System.setProperty(Lc3Backends.BACKEND_PROPERTY, "jna");
+        if (Lc3Backends.candidates().isEmpty()) {
+            // no native library on this host, must not be an Error
+            IllegalStateException e = null;
+            try {
+                Lc3Backends.createDecoder(48000, 2, 1, 0, 10, false);
+            } catch (IllegalStateException f) {
+                e = f;
+            }
+            assertTrue(e != null);
+        } else {
+            try (DecoderEngine engine = Lc3Backends.createDecoder(48000, 2, 1, 0, 10, false)) {
+                assertEquals(480, engine.getOutputSamples());
+            }
+        }
+    }
+
+    @Test
+    void test3() throws Exception {
+        // the preferred backend has no encoder, the next one which has is used
+        System.setProperty(Lc3Backends.BACKEND_PROPERTY, "ffm");
+        assumeTrue(Lc3Backends.candidates().stream().anyMatch(Lc3Backend::hasEncoder));
+        try (EncoderEngine engine = Lc3Backends.createEncoder(48000, 2, 0, 10, 128000, 0)) {
+            assertEquals(480, engine.getInputSamples());
+        }
+    }
+}
+
+/* */
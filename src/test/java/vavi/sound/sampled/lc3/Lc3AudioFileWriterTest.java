@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.sampled.lc3;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import vavi.util.Debug;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+/**
+ * Lc3AudioFileWriterTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class Lc3AudioFileWriterTest {
+
+    static final String inFile = "/test.lc3";
+
+    static AudioFormat pcmFormat;
+    static byte[] pcm;
+
+    @BeforeAll
+    static void setup() throws Exception {
+        Path path = Paths.get(Lc3AudioFileWriterTest.class.getResource(inFile).toURI());
+        AudioInputStream sourceAis = AudioSystem.getAudioInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        AudioFormat inAudioFormat = sourceAis.getFormat();
+        pcmFormat = new AudioFormat(inAudioFormat.getSampleRate(), 16, inAudioFormat.getChannels(), true, false);
+        pcm = AudioSystem.getAudioInputStream(pcmFormat, sourceAis).readAllBytes();
+    }
+
+    /** */
+    static AudioInputStream pcmAis() {
+        return new AudioInputStream(new ByteArrayInputStream(pcm), pcmFormat, pcm.length / pcmFormat.getFrameSize());
+    }
+
+    /** @return the signal length in the header */
+    static int signalLength(byte[] lc3) {
+        ByteBuffer bb = ByteBuffer.wrap(lc3).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0xcc1c, bb.getShort(0) & 0xffff);
+        return bb.getInt(14);
+    }
+
+    @Test
+    @DisplayName("to a file, the signal length is patched")
+    void test1(@TempDir Path dir) throws Exception {
+        Path out = dir.resolve("out.lc3");
+        // the length is unknown at the beginning
+        AudioInputStream ais = new AudioInputStream(new ByteArrayInputStream(pcm), pcmFormat, AudioSystem.NOT_SPECIFIED);
+        int l = AudioSystem.write(ais, Lc3FileFormatType.LC3, out.toFile());
+        byte[] lc3 = Files.readAllBytes(out);
+Debug.println("written: " + l + ", " + lc3.length);
+        assertEquals(lc3.length, l);
+        assertEquals(pcm.length / pcmFormat.getFrameSize(), signalLength(lc3));
+
+        // read it again
+        AudioInputStream lc3Ais = AudioSystem.getAudioInputStream(out.toFile());
+        assertEquals(Lc3Encoding.LC3, lc3Ais.getFormat().getEncoding());
+        byte[] decoded = AudioSystem.getAudioInputStream(pcmFormat, lc3Ais).readAllBytes();
+        assertEquals(pcm.length, decoded.length);
+    }
+
+    @Test
+    @DisplayName("to a stream, the known length is written")
+    void test2() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        AudioSystem.write(pcmAis(), Lc3FileFormatType.LC3, baos);
+        assertEquals(pcm.length / pcmFormat.getFrameSize(), signalLength(baos.toByteArray()));
+    }
+
+    @Test
+    @DisplayName("copy an lc3 stream")
+    void test3() throws Exception {
+        Path path = Paths.get(Lc3AudioFileWriterTest.class.getResource(inFile).toURI());
+        AudioInputStream lc3Ais = AudioSystem.getAudioInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        AudioSystem.write(lc3Ais, Lc3FileFormatType.LC3, baos);
+        byte[] lc3 = baos.toByteArray();
+        assertEquals(signalLength(Files.readAllBytes(path)), signalLength(lc3));
+
+        AudioInputStream copied = AudioSystem.getAudioInputStream(new BufferedInputStream(new ByteArrayInputStream(lc3)));
+        byte[] decoded = AudioSystem.getAudioInputStream(pcmFormat, copied).readAllBytes();
+        assertEquals(pcm.length, decoded.length);
+    }
+}
+
+/* */
@@ -7,11 +7,21 @@
 package vavi.sound.sampled.lc3;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
@@ -21,11 +31,13 @@ import javax.sound.sampled.SourceDataLine;
 import javax.sound.sampled.spi.AudioFileReader;
 import javax.sound.sampled.spi.FormatConversionProvider;
 
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import vavi.sound.lc3.Lc3Plus;
 import vavi.util.Debug;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static vavi.sound.SoundUtil.volume;
 import static vavix.util.DelayedWorker.later;
@@ -157,12 +169,204 @@ Debug.println("OUT: " + outAudioFormat);
     }
 
     @Test
-    @Disabled("TODO? java.lang.IllegalArgumentException: invalid frame size: NOT_SPECIFIED")
+    @DisplayName("clip")
     void test3() throws Exception {
-        AudioInputStream ais = AudioSystem.getAudioInputStream(Lc3FormatConversionProviderTest.class.getResourceAsStream(inFile));
+        AudioInputStream ais = AudioSystem.getAudioInputStream(new BufferedInputStream(Lc3FormatConversionProviderTest.class.getResourceAsStream(inFile)));
+        AudioFormat inAudioFormat = ais.getFormat();
+        AudioFormat outAudioFormat = new AudioFormat(inAudioFormat.getSampleRate(), 16, inAudioFormat.getChannels(), true, false);
+        AudioInputStream pcmAis = AudioSystem.getAudioInputStream(outAudioFormat, ais);
+        // by the signal length in the header
+        assertTrue(pcmAis.getFrameLength() > 0);
+
         Clip clip = AudioSystem.getClip();
-        clip.open(ais);
-        clip.loop(1);
+        clip.open(pcmAis);
+        assertEquals(pcmAis.getFrameLength(), clip.getFrameLength());
+        volume(clip, volume);
+        clip.start();
+        while (!later(time).come()) {
+            Thread.yield();
+        }
+        clip.stop();
+        clip.close();
+    }
+
+    @Test
+    @DisplayName("to float")
+    void test4() throws Exception {
+        Path path = Paths.get(Lc3FormatConversionProviderTest.class.getResource(inFile).toURI());
+        AudioInputStream sourceAis = AudioSystem.getAudioInputStream(new BufferedInputStream(Files.newInputStream(path)));
+
+        AudioFormat inAudioFormat = sourceAis.getFormat();
+        AudioFormat outAudioFormat = new AudioFormat(
+            AudioFormat.Encoding.PCM_FLOAT,
+            inAudioFormat.getSampleRate(),
+            32,
+            inAudioFormat.getChannels(),
+            inAudioFormat.getChannels() * Float.BYTES,
+            inAudioFormat.getSampleRate(),
+            false);
+Debug.println("OUT: " + outAudioFormat);
+
+        assertTrue(AudioSystem.isConversionSupported(outAudioFormat, inAudioFormat));
+
+        AudioInputStream pcmAis = AudioSystem.getAudioInputStream(outAudioFormat, sourceAis);
+        FloatBuffer fb = ByteBuffer.wrap(pcmAis.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        assertTrue(fb.remaining() > 0);
+        while (fb.hasRemaining()) {
+            float f = fb.get();
+            assertTrue(f >= -1f && f < 1f);
+        }
+    }
+
+    @Test
+    @DisplayName("pcm to lc3")
+    void test5() throws Exception {
+        Path path = Paths.get(Lc3FormatConversionProviderTest.class.getResource(inFile).toURI());
+        AudioInputStream sourceAis = AudioSystem.getAudioInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        AudioFormat inAudioFormat = sourceAis.getFormat();
+        AudioFormat pcmFormat = new AudioFormat(inAudioFormat.getSampleRate(), 16, inAudioFormat.getChannels(), true, false);
+        byte[] pcm = AudioSystem.getAudioInputStream(pcmFormat, sourceAis).readAllBytes();
+        double seconds = pcm.length / (double) pcmFormat.getFrameSize() / pcmFormat.getSampleRate();
+
+        for (float frameMs : new float[] {10, 5, 2.5f}) {
+            AudioFormat lc3Format = new AudioFormat(Lc3Encoding.LC3, pcmFormat.getSampleRate(), 16, pcmFormat.getChannels(),
+                    AudioSystem.NOT_SPECIFIED, AudioSystem.NOT_SPECIFIED, false, Map.of("bitrate", 96000, "frameMs", frameMs));
+            AudioInputStream pcmAis = new AudioInputStream(new ByteArrayInputStream(pcm), pcmFormat, pcm.length / pcmFormat.getFrameSize());
+            assertTrue(AudioSystem.isConversionSupported(lc3Format, pcmFormat));
+
+            long t = System.nanoTime();
+            AudioInputStream lc3Ais = AudioSystem.getAudioInputStream(lc3Format, pcmAis);
+            byte[] lc3 = lc3Ais.readAllBytes();
+            double elapsed = (System.nanoTime() - t) / 1e9;
+            assertEquals(frameMs, lc3Ais.getFormat().getProperty("frameMs"));
+Debug.println(String.format("%.1f ms: %d bytes, x%.1f realtime", frameMs, lc3.length, seconds / elapsed));
+
+            // walk the length prefixes
+            ByteBuffer bb = ByteBuffer.wrap(lc3).order(ByteOrder.LITTLE_ENDIAN);
+            int frames = 0;
+            while (bb.hasRemaining()) {
+                bb.position(bb.position() + (bb.getShort() & 0xffff));
+                frames++;
+            }
+            assertTrue(frames >= seconds * 1000 / frameMs);
+        }
+
+        // by encoding with the default parameters
+        AudioInputStream pcmAis = new AudioInputStream(new ByteArrayInputStream(pcm), pcmFormat, pcm.length / pcmFormat.getFrameSize());
+        AudioInputStream lc3Ais = AudioSystem.getAudioInputStream(Lc3Encoding.LC3, pcmAis);
+        assertEquals(pcmFormat.getChannels() * 64000, lc3Ais.getFormat().getProperty("bitrate"));
+        assertTrue(lc3Ais.readAllBytes().length > 0);
+    }
+
+    @Test
+    @DisplayName("skip at the bitstream level")
+    void test6() throws Exception {
+        Path path = Paths.get(Lc3FormatConversionProviderTest.class.getResource(inFile).toURI());
+        AudioFormat inAudioFormat = AudioSystem.getAudioFileFormat(path.toFile()).getFormat();
+        AudioFormat pcmFormat = new AudioFormat(inAudioFormat.getSampleRate(), 16, inAudioFormat.getChannels(), true, false);
+        byte[] all = AudioSystem.getAudioInputStream(pcmFormat, AudioSystem.getAudioInputStream(new BufferedInputStream(Files.newInputStream(path)))).readAllBytes();
+        // not on a frame boundary
+        long target = (all.length * 3L / 4) / pcmFormat.getFrameSize() * pcmFormat.getFrameSize() + 100 * pcmFormat.getFrameSize();
+        byte[] expected = new byte[pcmFormat.getFrameSize() * 4800];
+        System.arraycopy(all, (int) target, expected, 0, expected.length);
+
+        // decode and discard
+        long t = System.nanoTime();
+        try (AudioInputStream pcmAis = AudioSystem.getAudioInputStream(pcmFormat, AudioSystem.getAudioInputStream(new BufferedInputStream(Files.newInputStream(path))))) {
+            InputStream in = new InputStream() { // no skip
+                @Override public int read() throws IOException { return pcmAis.read(); }
+                @Override public int read(byte[] b, int off, int len) throws IOException { return pcmAis.read(b, off, len); }
+            };
+            assertEquals(target, in.readNBytes((int) target).length);
+        }
+        long td = System.nanoTime() - t;
+
+        // skip
+        byte[] actual = new byte[expected.length];
+        t = System.nanoTime();
+        long ts;
+        try (AudioInputStream pcmAis = AudioSystem.getAudioInputStream(pcmFormat, AudioSystem.getAudioInputStream(new BufferedInputStream(Files.newInputStream(path))))) {
+            long l = 0;
+            while (l < target) {
+                long n = pcmAis.skip(target - l);
+                assertTrue(n > 0);
+                l += n;
+            }
+            ts = System.nanoTime() - t;
+            assertEquals(target, l);
+            assertEquals(actual.length, pcmAis.readNBytes(actual, 0, actual.length));
+        }
+Debug.println(String.format("decode and discard: %.1f ms, skip: %.1f ms, x%.1f", td / 1e6, ts / 1e6, (double) td / ts));
+
+        double signal = 0, noise = 0;
+        ShortBuffer e = ByteBuffer.wrap(expected).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        ShortBuffer a = ByteBuffer.wrap(actual).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        for (int i = 0; i < e.limit(); i++) {
+            double d = a.get(i) - e.get(i);
+            signal += (double) e.get(i) * e.get(i);
+            noise += d * d;
+        }
+        double snr = noise == 0 ? Double.POSITIVE_INFINITY : 10 * Math.log10(signal / noise);
+Debug.println(String.format("snr vs decode and discard: %.1f dB", snr));
+        assertTrue(snr > 40);
+    }
+
+    @Test
+    @DisplayName("frame length")
+    void test7() throws Exception {
+        Path path = Paths.get(Lc3FormatConversionProviderTest.class.getResource(inFile).toURI());
+        AudioFileFormat aff = AudioSystem.getAudioFileFormat(path.toFile());
+Debug.println("frames: " + aff.getFrameLength() + ", duration: " + aff.getProperty("duration"));
+        assertTrue(aff.getFrameLength() > 0);
+
+        AudioFormat inAudioFormat = aff.getFormat();
+        AudioFormat outAudioFormat = new AudioFormat(inAudioFormat.getSampleRate(), 16, inAudioFormat.getChannels(), true, false);
+        // the decode target is allocated once
+        AudioInputStream pcmAis = AudioSystem.getAudioInputStream(outAudioFormat, AudioSystem.getAudioInputStream(path.toFile()));
+        assertEquals(aff.getFrameLength(), pcmAis.getFrameLength());
+        byte[] pcm = new byte[(int) pcmAis.getFrameLength() * outAudioFormat.getFrameSize()];
+        assertEquals(pcm.length, pcmAis.readNBytes(pcm, 0, pcm.length));
+        assertEquals(-1, pcmAis.read(new byte[outAudioFormat.getFrameSize()]));
+
+        // a legacy header has no signal length, a mapped file is scanned
+        byte[] lc3 = Files.readAllBytes(path);
+        ByteBuffer bb = ByteBuffer.wrap(lc3).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer legacy = ByteBuffer.allocate(6 + lc3.length - (bb.getShort(2) & 0xffff)).order(ByteOrder.LITTLE_ENDIAN);
+        legacy.putShort(bb.getShort(4)).putShort(bb.getShort(6)).putShort(bb.getShort(8));
+        legacy.put(lc3, bb.getShort(2) & 0xffff, lc3.length - (bb.getShort(2) & 0xffff));
+        Path legacyFile = Files.createTempFile("legacy", ".lc3");
+        try {
+            Files.write(legacyFile, legacy.array());
+            long frames = AudioSystem.getAudioFileFormat(legacyFile.toFile()).getFrameLength(); // also scanned
+            AudioInputStream legacyAis = AudioSystem.getAudioInputStream(legacyFile.toFile());
+            // whole frames without the codec delay, the same for the reader and the decoding stream
+            Lc3Plus lc3Plus = (Lc3Plus) legacyAis.getFormat().getProperty("lc3Plus");
+            assertEquals(lc3Plus.getDecodedLength(), frames);
+            assertTrue(frames < lc3Plus.getSignalLength());
+            long scanned = AudioSystem.getAudioInputStream(outAudioFormat, legacyAis).getFrameLength();
+Debug.println("frames: " + frames + ", scanned: " + scanned);
+            assertEquals(frames, scanned);
+            assertTrue(scanned >= aff.getFrameLength());
+            legacyAis.close();
+        } finally {
+            Files.delete(legacyFile);
+        }
+    }
+
+    @Test
+    @DisplayName("lc3 targets by the sample rate, hrMode is only at 48 and 96 kHz")
+    void test8() throws Exception {
+        FormatConversionProvider provider = new Lc3FormatConversionProvider();
+        for (float sampleRate : new float[] { 44100, 48000, 96000 }) {
+            AudioFormat pcm = new AudioFormat(sampleRate, 16, 2, true, false);
+            int[] sizes = Arrays.stream(provider.getTargetFormats(Lc3Encoding.LC3, pcm)).mapToInt(AudioFormat::getSampleSizeInBits).toArray();
+Debug.println(sampleRate + ": " + Arrays.toString(sizes));
+            switch ((int) sampleRate) {
+            case 44100 -> assertArrayEquals(new int[] { 16 }, sizes);
+            case 48000 -> assertArrayEquals(new int[] { 16, 24 }, sizes);
+            case 96000 -> assertArrayEquals(new int[] { 24 }, sizes);
+            }
+        }
     }
 }
 